@@ -0,0 +1,58 @@
+package ex.querydsl.benchmark;
+
+import ex.querydsl.entity.Member;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static ex.querydsl.entity.QMember.member;
+import static ex.querydsl.entity.QTeam.team;
+
+//페치 조인 vs 지연 로딩
+//회원을 조회한 뒤 팀 이름까지 사용하는 경우 - 지연 로딩은 팀 프록시를 초기화할 때마다 추가 쿼리가 나간다
+//지연 로딩이 동작하려면 영속성 컨텍스트가 살아 있어야 하므로 읽기 전용 트랜잭션 안에서 실행한다
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FetchJoinBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Benchmark
+    public void lazyLoading(MemberDataState state, Blackhole blackhole) {
+        state.readOnlyTransaction.executeWithoutResult(status -> {
+            List<Member> members = state.queryFactory
+                    .selectFrom(member)
+                    .limit(PAGE_SIZE)
+                    .fetch();
+            for (Member m : members) {
+                blackhole.consume(m.getTeam().getName());
+            }
+        });
+    }
+
+    @Benchmark
+    public void fetchJoin(MemberDataState state, Blackhole blackhole) {
+        state.readOnlyTransaction.executeWithoutResult(status -> {
+            List<Member> members = state.queryFactory
+                    .selectFrom(member)
+                    .join(member.team, team).fetchJoin()
+                    .limit(PAGE_SIZE)
+                    .fetch();
+            for (Member m : members) {
+                blackhole.consume(m.getTeam().getName());
+            }
+        });
+    }
+
+}
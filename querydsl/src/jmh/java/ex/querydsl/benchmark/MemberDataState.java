@@ -0,0 +1,64 @@
+package ex.querydsl.benchmark;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import ex.querydsl.QuerydslApplication;
+import ex.querydsl.dto.MemberSpec;
+import ex.querydsl.repository.MemberBulkLoader;
+import ex.querydsl.repository.MemberJpaRepository;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.stream.IntStream;
+
+//벤치마크 공용 상태
+//임베디드(in-memory) H2 로 애플리케이션 컨텍스트를 띄우고 memberCount 건의 회원을 10개 팀에 나눠 등록한다
+//데이터 크기는 -Pjmh.memberCount=... 또는 build.gradle 의 jmh.benchmarkParameters 로 바꾼다
+@State(Scope.Benchmark)
+public class MemberDataState {
+
+    @Param({"1000", "100000"})
+    public int memberCount;
+
+    ConfigurableApplicationContext context;
+    JPAQueryFactory queryFactory;
+    MemberJpaRepository memberJpaRepository;
+    TransactionTemplate readOnlyTransaction;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        //커맨드라인 인자는 application.yml 보다 우선한다
+        context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.profiles.active=jmh",
+                        "--spring.datasource.url=jdbc:h2:mem:jmh;DB_CLOSE_DELAY=-1",
+                        "--logging.level.org.hibernate.SQL=warn",
+                        "--member.search.cache.enabled=false"
+                );
+
+        context.getBean(MemberBulkLoader.class).load(
+                IntStream.range(0, memberCount)
+                        .mapToObj(i -> new MemberSpec("Member" + i, i % 80, "Team" + (i % 10)))
+        );
+
+        queryFactory = context.getBean(JPAQueryFactory.class);
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+}
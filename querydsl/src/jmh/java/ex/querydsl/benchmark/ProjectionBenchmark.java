@@ -0,0 +1,105 @@
+package ex.querydsl.benchmark;
+
+import com.querydsl.core.types.Projections;
+import ex.querydsl.dto.MemberDto;
+import ex.querydsl.dto.MemberTeamDto;
+import ex.querydsl.dto.QMemberDto;
+import ex.querydsl.dto.QMemberTeamDto;
+import ex.querydsl.dto.UserDto;
+import ex.querydsl.projection.FastProjections;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static ex.querydsl.entity.QMember.member;
+import static ex.querydsl.entity.QTeam.team;
+
+//DTO 프로젝션 방식 비교 - 같은 행을 읽고 DTO 로 변환하는 방식만 다르다
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProjectionBenchmark {
+
+    //프로퍼티(Setter) 접근
+    @Benchmark
+    public List<MemberDto> bean(MemberDataState state) {
+        return state.queryFactory
+                .select(Projections.bean(MemberDto.class, member.username, member.age))
+                .from(member)
+                .fetch();
+    }
+
+    //필드 접근
+    @Benchmark
+    public List<UserDto> fields(MemberDataState state) {
+        return state.queryFactory
+                .select(Projections.fields(UserDto.class, member.username.as("name"), member.age))
+                .from(member)
+                .fetch();
+    }
+
+    //생성자 접근
+    @Benchmark
+    public List<MemberDto> constructor(MemberDataState state) {
+        return state.queryFactory
+                .select(Projections.constructor(MemberDto.class, member.username, member.age))
+                .from(member)
+                .fetch();
+    }
+
+    //LambdaMetafactory 세터
+    @Benchmark
+    public List<MemberDto> fastBean(MemberDataState state) {
+        return state.queryFactory
+                .select(FastProjections.bean(MemberDto.class, member.username, member.age))
+                .from(member)
+                .fetch();
+    }
+
+    //LambdaMetafactory 세터(필드 접근 대체)
+    @Benchmark
+    public List<UserDto> fastFields(MemberDataState state) {
+        return state.queryFactory
+                .select(FastProjections.fields(UserDto.class, member.username.as("name"), member.age))
+                .from(member)
+                .fetch();
+    }
+
+    //LambdaMetafactory 생성자
+    @Benchmark
+    public List<MemberDto> fastConstructor(MemberDataState state) {
+        return state.queryFactory
+                .select(FastProjections.constructor(MemberDto.class, member.username, member.age))
+                .from(member)
+                .fetch();
+    }
+
+    //@QueryProjection
+    @Benchmark
+    public List<MemberDto> queryProjection(MemberDataState state) {
+        return state.queryFactory
+                .select(new QMemberDto(member.username, member.age))
+                .from(member)
+                .fetch();
+    }
+
+    //@QueryProjection + 팀 조인
+    @Benchmark
+    public List<MemberTeamDto> queryProjectionWithTeam(MemberDataState state) {
+        return state.queryFactory
+                .select(new QMemberTeamDto(member.id, member.username, member.age, team.id, team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .fetch();
+    }
+
+}
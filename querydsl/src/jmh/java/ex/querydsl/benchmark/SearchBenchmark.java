@@ -0,0 +1,48 @@
+package ex.querydsl.benchmark;
+
+import ex.querydsl.dto.MemberSearch;
+import ex.querydsl.dto.MemberTeamDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//동적 쿼리 작성 방식 비교
+//searchV1 : BooleanBuilder
+//searchV2 : where 다중 파라미터(BooleanExpression 조합)
+//searchV3 : 쿼리 모양 캐시(미리 만든 JPQL + 파라미터 바인딩)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    private static final MemberSearch SEARCH = MemberSearch.builder()
+            .teamName("Team3")
+            .ageGoe(20)
+            .ageLoe(40)
+            .build();
+
+    @Benchmark
+    public List<MemberTeamDto> searchV1BooleanBuilder(MemberDataState state) {
+        return state.memberJpaRepository.searchV1(SEARCH);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchV2BooleanExpression(MemberDataState state) {
+        return state.memberJpaRepository.searchV2(SEARCH);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchV3QueryShape(MemberDataState state) {
+        return state.memberJpaRepository.searchV3(SEARCH);
+    }
+
+}
@@ -0,0 +1,186 @@
+package ex.querydsl.loadtest;
+
+import ex.querydsl.QuerydslApplication;
+import ex.querydsl.dto.MemberSpec;
+import ex.querydsl.repository.MemberBulkLoader;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+//플랫폼 스레드 / 가상 스레드 요청 처리 비교 부하 테스트 - ./gradlew loadTest
+//같은 조건(데이터, 동시 사용자 수, DB 지연)으로 애플리케이션을 모드별로 한 번씩 띄워서 처리량과 p99 를 비교한다
+//  loadtest.concurrency      : 동시에 요청을 보내는 클라이언트 수 (기본 400 - 톰캣 기본 스레드 200 보다 많게)
+//  loadtest.duration         : 측정 시간 (워밍업 별도)
+//  loadtest.path             : 요청 경로
+//  loadtest.memberCount      : 등록할 회원 수
+//  loadtest.simulatedLatency : SQL 마다 추가할 DB 왕복 시간 (SimulatedDbLatencyConfig)
+//결과는 콘솔과 build/results/loadtest/results.json 에 남는다
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = Integer.getInteger("loadtest.concurrency", 400);
+        Duration warmup = Duration.parse(System.getProperty("loadtest.warmup", "PT5S"));
+        Duration duration = Duration.parse(System.getProperty("loadtest.duration", "PT20S"));
+        String path = System.getProperty("loadtest.path", "/v3/members?teamName=Team1&page=0&size=20");
+        int memberCount = Integer.getInteger("loadtest.memberCount", 10000);
+        String simulatedLatency = System.getProperty("loadtest.simulatedLatency", "20ms");
+
+        List<Result> results = new ArrayList<>();
+        for (boolean virtual : new boolean[]{false, true}) {
+            try (ConfigurableApplicationContext context = start(virtual, memberCount, simulatedLatency)) {
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                URI uri = URI.create("http://localhost:" + port + path);
+                run(uri, concurrency, warmup);
+                results.add(run(uri, concurrency, duration).named(virtual ? "virtual" : "platform"));
+            }
+        }
+
+        System.out.printf("%n%-10s %12s %10s %10s %10s%n", "mode", "req/s", "p50(ms)", "p99(ms)", "errors");
+        results.forEach(r -> System.out.printf(Locale.ROOT, "%-10s %12.1f %10.1f %10.1f %10d%n",
+                r.mode, r.throughput, r.p50Millis, r.p99Millis, r.errors));
+
+        Path output = Path.of("build/results/loadtest/results.json");
+        Files.createDirectories(output.getParent());
+        Files.writeString(output, toJson(results, concurrency, duration, path, simulatedLatency));
+    }
+
+    //모드마다 새 인메모리 DB 를 쓰고 로그, 검색 캐시처럼 결과를 흐리는 요소는 끈다
+    private static ConfigurableApplicationContext start(boolean virtual, int memberCount, String simulatedLatency) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(QuerydslApplication.class, SimulatedDbLatencyConfig.class)
+                .run(
+                        "--spring.profiles.active=" + (virtual ? "loadtest,virtual" : "loadtest"),
+                        "--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:loadtest-" + (virtual ? "virtual" : "platform") + ";DB_CLOSE_DELAY=-1",
+                        "--logging.level.org.hibernate.SQL=warn",
+                        "--member.search.cache.enabled=false",
+                        "--loadtest.simulated-latency=" + simulatedLatency
+                );
+
+        context.getBean(MemberBulkLoader.class).load(
+                IntStream.range(0, memberCount)
+                        .mapToObj(i -> new MemberSpec("Member" + i, i % 80, "Team" + (i % 10)))
+        );
+        return context;
+    }
+
+    //클라이언트 쪽은 두 모드 모두 가상 스레드로 요청을 보내서 클라이언트가 병목이 되지 않게 한다
+    private static Result run(URI uri, int concurrency, Duration duration) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET().build();
+
+        long deadline = System.nanoTime() + duration.toNanos();
+        AtomicLong errors = new AtomicLong();
+        List<long[]> latencies = new ArrayList<>();
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                LongList samples = new LongList();
+                executor.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long begin = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if(response.statusCode() == 200) {
+                                samples.add(System.nanoTime() - begin);
+                            } else {
+                                errors.incrementAndGet();
+                            }
+                        } catch (IOException e) {
+                            errors.incrementAndGet();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                    }
+                    synchronized (latencies) {
+                        latencies.add(samples.toArray());
+                    }
+                });
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(all.length / seconds, percentileMillis(all, 0.50), percentileMillis(all, 0.99), errors.get());
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if(sorted.length == 0) return 0;
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+
+    private static String toJson(List<Result> results, int concurrency, Duration duration, String path, String simulatedLatency) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"concurrency\": ").append(concurrency)
+                .append(",\n  \"duration\": \"").append(duration).append('"')
+                .append(",\n  \"path\": \"").append(path).append('"')
+                .append(",\n  \"simulatedLatency\": \"").append(simulatedLatency).append('"')
+                .append(",\n  \"results\": [\n");
+        for (int i = 0; i < results.size(); i++) {
+            Result r = results.get(i);
+            json.append(String.format(Locale.ROOT,
+                    "    {\"mode\": \"%s\", \"throughput\": %.1f, \"p50Millis\": %.2f, \"p99Millis\": %.2f, \"errors\": %d}",
+                    r.mode, r.throughput, r.p50Millis, r.p99Millis, r.errors));
+            json.append(i < results.size() - 1 ? ",\n" : "\n");
+        }
+        return json.append("  ]\n}\n").toString();
+    }
+
+    private static final class Result {
+        private String mode;
+        private final double throughput;
+        private final double p50Millis;
+        private final double p99Millis;
+        private final long errors;
+
+        private Result(double throughput, double p50Millis, double p99Millis, long errors) {
+            this.throughput = throughput;
+            this.p50Millis = p50Millis;
+            this.p99Millis = p99Millis;
+            this.errors = errors;
+        }
+
+        private Result named(String mode) {
+            this.mode = mode;
+            return this;
+        }
+    }
+
+    //워커마다 하나씩 쓰는 지연 시간 버퍼 - 요청마다 Long 을 만들지 않도록
+    private static final class LongList {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if(size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+package ex.querydsl.loadtest;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.time.Duration;
+
+//인메모리 H2 는 쿼리가 마이크로초 단위로 끝나서 요청 스레드가 JDBC 에서 블로킹되는 상황이 재현되지 않는다
+//원격 DB 왕복 시간을 흉내내기 위해 커넥션을 잡은 상태에서 SQL 을 준비할 때마다 latency 만큼 멈춘다
+@Configuration(proxyBeanMethods = false)
+public class SimulatedDbLatencyConfig {
+
+    @Bean
+    static BeanPostProcessor simulatedDbLatencyPostProcessor(@Value("${loadtest.simulated-latency:20ms}") Duration latency) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource && !latency.isZero() ? slow(dataSource, latency) : bean;
+            }
+        };
+    }
+
+    private static DataSource slow(DataSource dataSource, Duration latency) {
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(dataSource, method, args);
+                    return result instanceof Connection connection ? slow(connection, latency) : result;
+                });
+    }
+
+    private static Connection slow(Connection connection, Duration latency) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if(method.getName().startsWith("prepare")) {
+                        Thread.sleep(latency);
+                    }
+                    return invoke(connection, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, java.lang.reflect.Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+}
@@ -1,14 +1,16 @@
 package ex.querydsl;
 
-import ex.querydsl.entity.Member;
-import ex.querydsl.entity.Team;
+import ex.querydsl.dto.BulkLoadResult;
+import ex.querydsl.dto.MemberSpec;
+import ex.querydsl.repository.MemberBulkLoader;
 import jakarta.annotation.PostConstruct;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.util.stream.LongStream;
 
 @Profile("local")
 @Component
@@ -22,22 +24,24 @@ public class InitMember {
         initMemberService.init();
     }
 
+    @Slf4j
     @Component
+    @RequiredArgsConstructor
     static class InitMemberService {
 
-        @PersistenceContext
-        private EntityManager em;
+        private final MemberBulkLoader memberBulkLoader;
+
+        //스테이징 환경처럼 대량 데이터가 필요하면 member.init.count 를 늘린다
+        @Value("${member.init.count:100}")
+        private long count;
 
-        @Transactional
+        //트랜잭션은 MemberBulkLoader 가 chunk 단위로 관리한다
         public void init() {
-            Team teamA = new Team("TeamA");
-            Team teamB = new Team("TeamB");
-            em.persist(teamA);
-            em.persist(teamB);
-            for (int i = 0; i < 100; i++) {
-                Team selectedTeam = i % 2 == 0 ? teamA : teamB;
-                em.persist(new Member("Member" + i, i, selectedTeam));
-            }
+            BulkLoadResult result = memberBulkLoader.load(
+                    LongStream.range(0, count)
+                            .mapToObj(i -> new MemberSpec("Member" + i, (int) (i % 100), i % 2 == 0 ? "TeamA" : "TeamB"))
+            );
+            log.info("init members = {}, {} rows/s", result.getRows(), Math.round(result.getRowsPerSecond()));
         }
 
     }
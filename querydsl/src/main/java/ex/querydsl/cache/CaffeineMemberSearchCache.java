@@ -0,0 +1,99 @@
+package ex.querydsl.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import ex.querydsl.event.EntityChangesCommittedEvent;
+import ex.querydsl.event.ReplicaCaughtUpEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static ex.querydsl.event.Transactions.inReadWriteTransaction;
+
+//Caffeine 기반 검색 결과 캐시
+//Caffeine 은 W-TinyLFU 정책을 사용하기 때문에 한 번 스쳐 가는 검색이 자주 쓰이는 검색을 밀어내지 않는다
+//용량은 캐시된 DTO 개수(maximumWeight)로 제한한다
+//
+//무효화
+//- Member/Team 변경이 커밋되면 전체 무효화(EntityChangesCommittedEvent)
+//  플러시 시점에는 무효화하지 않는다 - 커밋 전에는 다른 요청도 예전 데이터를 읽으므로 캐시된 결과가 그대로 맞다
+//- 쓰기 트랜잭션 안의 조회는 캐시를 거치지 않는다 : 커밋되지 않은(롤백될 수 있는) 결과가 캐시에 들어가면 안 된다
+//- 조회 중에 무효화되면 그 결과는 담지 않는다 : 무효화 전에 시작한 조회는 예전 데이터를 읽었을 수 있다
+//  무효화할 때마다 세대(generation)를 올리고 조회를 시작한 세대와 다르면 결과를 반환만 한다
+//  Caffeine 의 compute 로 적재하면 진행 중인 적재가 invalidateAll 뒤에 끝나면서 예전 결과를 다시 넣는다
+//  (같은 검색의 동시 실행은 SearchCoalescer 가 하나로 합친다)
+//- replica 라우팅을 쓰면 replica 가 따라잡은 뒤에 한 번 더 전체 무효화 : 커밋한 클라이언트 말고는 커밋 직후에도 replica 에서 읽는다
+//- 그래도 놓친 경우를 위해 expireAfterWrite 로 최대 보관 시간을 둔다
+@Component
+@ConditionalOnProperty(name = "member.search.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class CaffeineMemberSearchCache implements MemberSearchCache {
+
+    private final Cache<MemberSearchKey, Object> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    public CaffeineMemberSearchCache(@Value("${member.search.cache.max-weight:100000}") long maxWeight,
+                                     @Value("${member.search.cache.expire-after-write:5m}") Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((MemberSearchKey key, Object value) -> weight(value))
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(MemberSearchKey key, Supplier<T> loader) {
+        if(inReadWriteTransaction()) {
+            return loader.get();
+        }
+        Object cached = cache.getIfPresent(key);
+        if(cached != null) {
+            return (T) cached;
+        }
+        long loadedGeneration = generation.get();
+        T loaded = loader.get();
+        //세대 확인과 저장을 한 번에 한다 - invalidateAll 은 세대를 먼저 올리므로 그 뒤에 끝난 적재는 여기서 걸러진다
+        cache.asMap().compute(key, (k, current) -> generation.get() == loadedGeneration ? loaded : current);
+        return loaded;
+    }
+
+    @Override
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    @Override
+    public MemberSearchCacheStats stats() {
+        CacheStats stats = cache.stats();
+        return new MemberSearchCacheStats(stats.hitCount(), stats.missCount(),
+                stats.evictionCount(), stats.evictionWeight(), cache.estimatedSize());
+    }
+
+    @EventListener
+    public void onEntityChangesCommitted(EntityChangesCommittedEvent event) {
+        invalidateAll();
+    }
+
+    //커밋 직후 다른 클라이언트가 복제 전의 replica 에서 읽은 결과가 담겼을 수 있다
+    @EventListener
+    public void onReplicaCaughtUp(ReplicaCaughtUpEvent event) {
+        invalidateAll();
+    }
+
+    private static int weight(Object value) {
+        if(value instanceof Page<?> page) return Math.max(1, page.getNumberOfElements());
+        if(value instanceof Collection<?> collection) return Math.max(1, collection.size());
+        return 1;
+    }
+
+}
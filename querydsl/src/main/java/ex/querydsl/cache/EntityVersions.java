@@ -0,0 +1,44 @@
+package ex.querydsl.cache;
+
+import ex.querydsl.entity.Member;
+import ex.querydsl.entity.Team;
+import ex.querydsl.event.EntityChangesCommittedEvent;
+import ex.querydsl.event.ReplicaCaughtUpEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+//테이블(엔티티) 버전 카운터
+//Member, Team 변경이 커밋될 때마다(벌크 연산 포함) 증가한다 - 버전이 같으면 같은 조건의 조회 결과도 같다
+//조회 응답의 ETag 로 사용해서 클라이언트가 If-None-Match 로 다시 요청하면 DB 를 조회하지 않고 304 를 돌려준다
+//- 재시작하면 카운터가 처음부터 다시 시작하므로 시작 시각(epoch)을 붙여 이전 프로세스의 ETag 와 겹치지 않게 한다
+//- 카운터는 이 인스턴스에서 커밋된 변경만 알기 때문에 여러 인스턴스가 같은 DB 에 쓰는 구성이라면 공유 저장소로 옮겨야 한다
+//- replica 라우팅을 쓰면 커밋한 클라이언트 말고는 커밋 직후에도 replica 에서 읽으므로 새 버전에 복제 전의 데이터가 붙을 수 있다
+//  replica 가 따라잡으면(ReplicaCaughtUpEvent) 버전을 한 번 더 올려서 그 ETag 로 받은 클라이언트가 다시 받아 가게 한다
+@Component
+public class EntityVersions {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong memberVersion = new AtomicLong();
+    private final AtomicLong teamVersion = new AtomicLong();
+
+    @EventListener
+    public void onCommitted(EntityChangesCommittedEvent event) {
+        if(event.contains(Member.class)) memberVersion.incrementAndGet();
+        if(event.contains(Team.class)) teamVersion.incrementAndGet();
+    }
+
+    @EventListener
+    public void onReplicaCaughtUp(ReplicaCaughtUpEvent event) {
+        if(event.contains(Member.class)) memberVersion.incrementAndGet();
+        if(event.contains(Team.class)) teamVersion.incrementAndGet();
+    }
+
+    //회원 + 팀 조회 결과의 ETag
+    //같은 데이터라도 직렬화 형식이 다를 수 있으므로 약한(weak) ETag 로 만든다
+    public String memberTeamEtag() {
+        return "W/\"" + epoch + "-" + memberVersion.get() + "-" + teamVersion.get() + "\"";
+    }
+
+}
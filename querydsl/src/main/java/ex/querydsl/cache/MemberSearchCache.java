@@ -0,0 +1,15 @@
+package ex.querydsl.cache;
+
+import java.util.function.Supplier;
+
+//MemberSearch 검색 결과 캐시
+//구현체는 member.search.cache.enabled 설정으로 선택한다
+public interface MemberSearchCache {
+
+    <T> T get(MemberSearchKey key, Supplier<T> loader);
+
+    void invalidateAll();
+
+    MemberSearchCacheStats stats();
+
+}
@@ -0,0 +1,23 @@
+package ex.querydsl.cache;
+
+import lombok.Value;
+
+@Value
+public class MemberSearchCacheStats {
+
+    long hitCount;
+
+    long missCount;
+
+    long evictionCount;
+
+    long evictionWeight;
+
+    long estimatedSize;
+
+    public double getHitRate() {
+        long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+}
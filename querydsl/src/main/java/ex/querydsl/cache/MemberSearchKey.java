@@ -0,0 +1,76 @@
+package ex.querydsl.cache;
+
+import ex.querydsl.dto.MemberField;
+import ex.querydsl.dto.MemberSearch;
+import ex.querydsl.entity.Member;
+import lombok.Value;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import static org.springframework.util.StringUtils.hasText;
+
+//검색 결과 캐시 키
+//결과에 영향을 주지 않는 차이는 정규화해서 같은 키가 되도록 한다
+//- 빈 문자열 조건은 조건 없음(null) 과 같다
+//- 대소문자 무시 / 접두어 조건은 정규화한 값으로 비교한다
+//- 여러 값 조건은 순서와 중복을 무시한다
+@Value
+public class MemberSearchKey {
+
+    String query;
+
+    String username;
+
+    String usernamePrefix;
+
+    String usernameIgnoreCase;
+
+    String teamName;
+
+    Integer ageGoe;
+
+    Integer ageLoe;
+
+    List<String> usernames;
+
+    List<String> teamNames;
+
+    List<Long> memberIds;
+
+    Set<MemberField> fields;
+
+    int pageNumber;
+
+    int pageSize;
+
+    String sort;
+
+    public static MemberSearchKey of(String query, MemberSearch search, Pageable pageable) {
+        return new MemberSearchKey(
+                query,
+                hasText(search.getUsername()) ? search.getUsername() : null,
+                hasText(search.getUsernamePrefix()) ? Member.normalizeUsername(search.getUsernamePrefix()) : null,
+                hasText(search.getUsernameIgnoreCase()) ? Member.normalizeUsername(search.getUsernameIgnoreCase()) : null,
+                hasText(search.getTeamName()) ? search.getTeamName() : null,
+                search.getAgeGoe(),
+                search.getAgeLoe(),
+                normalize(search.getUsernames()),
+                normalize(search.getTeamNames()),
+                normalize(search.getMemberIds()),
+                MemberField.parse(search.getFields()),
+                pageable.isPaged() ? pageable.getPageNumber() : -1,
+                pageable.isPaged() ? pageable.getPageSize() : -1,
+                pageable.getSort().toString()
+        );
+    }
+
+    private static <T extends Comparable<? super T>> List<T> normalize(List<T> values) {
+        if(values == null) return null;
+        List<T> normalized = values.stream().filter(Objects::nonNull).distinct().sorted().toList();
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+}
@@ -0,0 +1,27 @@
+package ex.querydsl.cache;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+//캐시 비활성화 - 항상 조회를 실행한다
+@Component
+@ConditionalOnProperty(name = "member.search.cache.enabled", havingValue = "false")
+public class NoOpMemberSearchCache implements MemberSearchCache {
+
+    @Override
+    public <T> T get(MemberSearchKey key, Supplier<T> loader) {
+        return loader.get();
+    }
+
+    @Override
+    public void invalidateAll() {
+    }
+
+    @Override
+    public MemberSearchCacheStats stats() {
+        return new MemberSearchCacheStats(0, 0, 0, 0, 0);
+    }
+
+}
@@ -0,0 +1,96 @@
+package ex.querydsl.cache;
+
+import ex.querydsl.event.EntityChangesCommittedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import static ex.querydsl.event.Transactions.inReadWriteTransaction;
+
+//같은 검색의 동시 요청 합치기(single-flight)
+//같은 키(정규화한 MemberSearch + Pageable)의 조회가 이미 실행 중이면 새로 실행하지 않고 먼저 온 요청의 결과를 기다린다
+//트래픽이 몰려 같은 검색이 동시에 수십 건 들어와도 DB 에서는 한 번만 실행된다
+//- 기다리는 시간은 maxWait 으로 제한하고 넘으면 직접 실행한다
+//- 먼저 실행한 요청이 실패하면 기다리던 요청도 같은 예외로 실패한다
+//- 쓰기가 커밋되면 실행 중인 조회에는 더 이상 합류하지 않는다(커밋 전 데이터를 보고 있을 수 있다)
+//- 쓰기 트랜잭션 안의 조회는 커밋되지 않은 데이터를 볼 수 있으므로 합치지 않는다
+//  member.search.coalesced         : 다른 요청의 결과를 받은 요청 수
+//  member.search.coalesce.timeouts : 기다리다가 직접 실행한 요청 수
+@Component
+public class SearchCoalescer {
+
+    private final Map<MemberSearchKey, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Duration maxWait;
+    private final Counter coalesced;
+    private final Counter timeouts;
+
+    public SearchCoalescer(MeterRegistry meterRegistry,
+                           @Value("${member.search.coalesce.max-wait:2s}") Duration maxWait) {
+        this.maxWait = maxWait;
+        this.coalesced = meterRegistry.counter("member.search.coalesced");
+        this.timeouts = meterRegistry.counter("member.search.coalesce.timeouts");
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(MemberSearchKey key, Supplier<T> loader) {
+        if(inReadWriteTransaction()) {
+            return loader.get();
+        }
+
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, flight);
+        if(running != null) {
+            return (T) await(running, loader);
+        }
+
+        try {
+            T result = loader.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    public long coalescedCount() {
+        return (long) coalesced.count();
+    }
+
+    @EventListener
+    public void onEntityChangesCommitted(EntityChangesCommittedEvent event) {
+        inFlight.clear();
+    }
+
+    private Object await(CompletableFuture<Object> running, Supplier<?> loader) {
+        try {
+            Object result = running.get(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+            coalesced.increment();
+            return result;
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            return loader.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("검색 결과 대기 중 인터럽트", e);
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            if(e.getCause() instanceof Error error) throw error;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+}
@@ -1,21 +1,43 @@
 package ex.querydsl.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.querydsl.core.types.Predicate;
+import ex.querydsl.cache.EntityVersions;
+import ex.querydsl.cache.MemberSearchCache;
+import ex.querydsl.cache.MemberSearchCacheStats;
+import ex.querydsl.dto.CountMode;
+import ex.querydsl.dto.MemberCursor;
+import ex.querydsl.dto.MemberField;
 import ex.querydsl.dto.MemberSearch;
+import ex.querydsl.dto.MemberSlice;
 import ex.querydsl.dto.MemberTeamDto;
 import ex.querydsl.entity.Member;
 import ex.querydsl.repository.MemberJpaRepository;
 import ex.querydsl.repository.MemberRepository;
+import ex.querydsl.repository.MemberTeamProjections;
+import ex.querydsl.repository.UsernamePrefixTrie;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.querydsl.binding.QuerydslPredicate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
 import org.springframework.ui.Model;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
@@ -24,20 +46,51 @@ public class MemberController {
 
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepository memberRepository;
+    private final MemberSearchCache searchCache;
+    private final EntityVersions entityVersions;
+    private final UsernamePrefixTrie usernamePrefixTrie;
+    private final ObjectMapper objectMapper;
+
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
 
     @GetMapping("/v1/members")
     public List<MemberTeamDto> getMembersV1(MemberSearch search) {
-        return memberJpaRepository.searchV2(search);
+        return memberJpaRepository.searchV3(search);
+    }
+
+    //대용량 내보내기 - NDJSON(한 줄에 JSON 하나) 스트리밍
+    //결과 전체를 List 로 만들지 않고 커서로 읽은 행을 바로 응답에 쓰기 때문에 첫 바이트가 빨리 나가고 힙 사용량이 일정하다
+    //ex) /v1/members/export?teamName=TeamA&fetchSize=1000
+    @GetMapping("/v1/members/export")
+    public ResponseEntity<StreamingResponseBody> exportMembersV1(MemberSearch search,
+                                                                 @RequestParam(defaultValue = "500") int fetchSize) {
+        StreamingResponseBody body = out -> memberJpaRepository.streamSearch(search, fetchSize, dto -> writeLine(out, dto));
+        return ResponseEntity.ok()
+                .contentType(APPLICATION_NDJSON)
+                .body(body);
     }
 
+    //조건부 GET - 응답에 회원/팀 테이블 버전으로 만든 ETag 를 붙인다
+    //같은 조건으로 주기적으로 조회하는 클라이언트가 If-None-Match 를 보내면 버전이 그대로일 때 DB 조회 없이 304 로 끝난다
+    //버전은 쿼리를 실행하기 전에 읽는다 - 조회 중에 커밋된 변경은 다음 요청에서 ETag 가 달라져서 반영된다
+    //total 계산 방식 - ?count=EXACT(기본) | ESTIMATED | CAPPED
+    //응답의 countMode 가 실제로 사용된 방식이고 totalCapped 가 true 면 total 은 "total 건 이상"이다
     @GetMapping("/v2/members")
-    public Page<MemberTeamDto> getMembersV2(MemberSearch search, Pageable pageable) {
-        return memberRepository.searchPageSimple(search, pageable);
+    public Page<MemberTeamDto> getMembersV2(MemberSearch search, Pageable pageable, WebRequest webRequest,
+                                             @RequestParam(defaultValue = "EXACT") CountMode count) {
+        if(webRequest.checkNotModified(entityVersions.memberTeamEtag())) {
+            return null;
+        }
+        return memberRepository.searchPageSimple(search, pageable, count);
     }
 
     @GetMapping("/v3/members")
-    public Page<MemberTeamDto> getMembersV3(MemberSearch search, Pageable pageable) {
-        return memberRepository.searchPageComplex(search, pageable);
+    public Page<MemberTeamDto> getMembersV3(MemberSearch search, Pageable pageable, WebRequest webRequest,
+                                             @RequestParam(defaultValue = "EXACT") CountMode count) {
+        if(webRequest.checkNotModified(entityVersions.memberTeamEtag())) {
+            return null;
+        }
+        return memberRepository.searchPageComplex(search, pageable, count);
     }
 
     //Querydsl Web 지원
@@ -46,10 +99,64 @@ public class MemberController {
     //단순한 조건만 가능하고 컨트롤러가 querydsl 에 의존하게 된다
     //조건을 커스텀할 수 있지만 복잡하고 명시적이지 않다
     //복잡한 실무환경에서 사용하기엔 제약이 많이 따른다
+    //fields 는 회원 프로퍼티가 아니므로 조건으로 바인딩되지 않는다 - 다른 검색과 같이 고른 필드만 조회한다
     @GetMapping("/v4/members")
-    public Page<MemberTeamDto> getMembersV4(@QuerydslPredicate(root = Member.class) Predicate predicate, Pageable pageable) {
-        Page<Member> result = memberRepository.findAll(predicate, pageable);
-        return result.map(MemberTeamDto::new);
+    public Page<MemberTeamDto> getMembersV4(@QuerydslPredicate(root = Member.class) Predicate predicate, Pageable pageable,
+                                             @RequestParam(required = false) List<String> fields) {
+//        Page<Member> result = memberRepository.findAll(predicate, pageable);
+//        return result.map(MemberTeamDto::new);
+        //엔티티를 조회해서 변환하지 않고 바인딩된 조건으로 DTO 를 바로 조회한다 - 팀 정보도 함께 채워진다
+        return memberRepository.findAll(predicate, pageable, MemberTeamProjections.of(MemberField.parse(fields)));
+    }
+
+    //커서 기반 페이징
+    //ex) /v5/members?sort=AGE&size=20 > 응답의 nextCursor 를 /v5/members?cursor=... 로 넘겨 다음 페이지 조회
+    //커서에 정렬 기준이 담겨 있으므로 cursor 가 있으면 sort 는 무시한다
+    @GetMapping("/v5/members")
+    public MemberSlice getMembersV5(MemberSearch search,
+                                    @RequestParam(required = false) String cursor,
+                                    @RequestParam(defaultValue = "ID") MemberCursor.SortKey sort,
+                                    @RequestParam(defaultValue = "20") int size) {
+        MemberCursor memberCursor = cursor != null ? MemberCursor.decode(cursor) : MemberCursor.first(sort);
+        //size 는 최대 100 - 1 미만이면 400
+        return memberRepository.searchSlice(search, memberCursor, Math.min(size, 100));
+    }
+
+    //배치 검색 - 여러 조건을 한 번의 DB 조회로 처리한다
+    //요청 본문은 MemberSearch 배열이고 응답은 같은 순서의 결과 목록 배열이다
+    //ex) POST /members/search:batch  [{"teamName":"TeamA"},{"teamName":"TeamB"},{"ageGoe":20,"ageLoe":29}]
+    @PostMapping("/members/search:batch")
+    public List<List<MemberTeamDto>> searchMembersBatch(@RequestBody List<MemberSearch> searches) {
+        return memberRepository.searchBatch(searches);
+    }
+
+    //이름 자동완성 - DB 를 조회하지 않고 메모리 트라이에서 찾는다
+    //ex) /members/autocomplete?prefix=mem&limit=10
+    @GetMapping("/members/autocomplete")
+    public List<String> autocompleteUsername(@RequestParam String prefix,
+                                             @RequestParam(defaultValue = "10") int limit) {
+        return usernamePrefixTrie.complete(prefix, Math.min(limit, 100));
+    }
+
+    //검색 결과 캐시 적중률 / 제거 통계
+    @GetMapping("/members/search-cache/stats")
+    public MemberSearchCacheStats getSearchCacheStats() {
+        return searchCache.stats();
+    }
+
+    //잘못된 커서, 알 수 없는 fields, 최대 건수를 넘는 배치, 1 미만의 size 는 요청 오류이므로 400 으로 응답한다
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ProblemDetail badRequest(IllegalArgumentException e) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+
+    private void writeLine(OutputStream out, MemberTeamDto dto) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(dto));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
 }
@@ -0,0 +1,139 @@
+package ex.querydsl.controller;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import ex.querydsl.dto.CountedPage;
+import ex.querydsl.dto.MemberSlice;
+import ex.querydsl.dto.MemberTeamDto;
+import ex.querydsl.dto.MemberTeamDtoSerializer;
+import org.springframework.core.ResolvableType;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+//회원 검색 응답의 간결한 형식
+//기본 JSON 으로 Page(PageImpl)를 직렬화하면 pageable, sort 객체 그래프가 매 응답마다 따라 나간다
+//Accept 헤더로 요청하면 내용과 전체 개수(또는 커서)만 담은 봉투로 내보낸다
+//  application/vnd.member-page+json : 간결한 JSON
+//  application/cbor                 : 같은 구조의 바이너리(CBOR) - 텍스트 인코딩 비용과 크기가 줄어든다
+//봉투 구조
+//  Page<MemberTeamDto> : {"content": [...], "total": 10, "hasNext": true, "countMode": "EXACT"}
+//  MemberSlice         : {"content": [...], "hasNext": true, "nextCursor": "..."}
+//  List<MemberTeamDto> : [...]
+//Jackson ObjectMapper 를 거치지 않고 스트리밍 제너레이터에 직접 쓴다(MemberTeamDtoSerializer)
+//
+//HttpMessageConverter 빈은 기본 컨버터들보다 앞에 등록된다
+//Accept 가 없거나 */* 인 요청까지 이 형식으로 바뀌지 않도록 응답 형식을 지정하지 않은 경우(mediaType == null)에는 쓸 수 없다고 답한다
+//그러면 응답 형식 후보는 기본 컨버터(application/json, application/*+json, application/cbor)에서 정해지고
+//그중 위 두 형식으로 정해졌을 때만 앞에 있는 이 컨버터가 선택된다
+@Component
+public class MemberPageMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final MediaType LEAN_JSON = MediaType.parseMediaType("application/vnd.member-page+json");
+    public static final MediaType CBOR = MediaType.parseMediaType("application/cbor");
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final CBORFactory cborFactory = new CBORFactory();
+
+    public MemberPageMessageConverter() {
+        super(LEAN_JSON, CBOR);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return mediaType != null && canWrite(mediaType) && isMemberResult(type != null ? type : clazz, clazz);
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return canWrite(null, clazz, mediaType);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Page.class.isAssignableFrom(clazz) || MemberSlice.class.isAssignableFrom(clazz) || List.class.isAssignableFrom(clazz);
+    }
+
+    private static boolean isMemberResult(Type type, Class<?> clazz) {
+        if(MemberSlice.class.isAssignableFrom(clazz)) return true;
+        if(!Page.class.isAssignableFrom(clazz) && !List.class.isAssignableFrom(clazz)) return false;
+        return ResolvableType.forType(type).as(Page.class.isAssignableFrom(clazz) ? Page.class : List.class)
+                .getGeneric(0).resolve() == MemberTeamDto.class;
+    }
+
+    @Override
+    protected void writeInternal(Object result, Type type, HttpOutputMessage outputMessage) throws IOException {
+        MediaType contentType = outputMessage.getHeaders().getContentType();
+        JsonFactory factory = contentType != null && CBOR.isCompatibleWith(contentType) ? cborFactory : jsonFactory;
+
+        try (JsonGenerator gen = factory.createGenerator(outputMessage.getBody(), JsonEncoding.UTF8)) {
+            if(result instanceof Page<?> page) {
+                gen.writeStartObject();
+                writeContent(gen, page.getContent());
+                gen.writeNumberField("total", page.getTotalElements());
+                gen.writeBooleanField("hasNext", page.hasNext());
+                if(page instanceof CountedPage<?> counted) {
+                    gen.writeStringField("countMode", counted.getCountMode().name());
+                    if(counted.isTotalCapped()) {
+                        gen.writeBooleanField("totalCapped", true);
+                    }
+                }
+                gen.writeEndObject();
+            } else if(result instanceof MemberSlice slice) {
+                gen.writeStartObject();
+                writeContent(gen, slice.getContent());
+                gen.writeBooleanField("hasNext", slice.isHasNext());
+                if(slice.getNextCursor() != null) {
+                    gen.writeStringField("nextCursor", slice.getNextCursor());
+                }
+                gen.writeEndObject();
+            } else {
+                writeArray(gen, (List<?>) result);
+            }
+        }
+    }
+
+    private static void writeContent(JsonGenerator gen, List<?> content) throws IOException {
+        gen.writeFieldName("content");
+        writeArray(gen, content);
+    }
+
+    private static void writeArray(JsonGenerator gen, List<?> content) throws IOException {
+        gen.writeStartArray(content, content.size());
+        for (Object dto : content) {
+            MemberTeamDtoSerializer.write((MemberTeamDto) dto, gen);
+        }
+        gen.writeEndArray();
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("회원 검색 응답 형식은 읽을 수 없습니다", inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("회원 검색 응답 형식은 읽을 수 없습니다", inputMessage);
+    }
+
+}
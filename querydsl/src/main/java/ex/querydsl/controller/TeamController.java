@@ -0,0 +1,35 @@
+package ex.querydsl.controller;
+
+import ex.querydsl.dto.TeamMembersDto;
+import ex.querydsl.dto.TeamStatsDto;
+import ex.querydsl.repository.TeamQueryRepository;
+import ex.querydsl.repository.TeamStatsRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class TeamController {
+
+    private final TeamStatsRepository teamStatsRepository;
+    private final TeamQueryRepository teamQueryRepository;
+
+    //팀별 회원 수, 평균/최소/최대 나이
+    @GetMapping("/teams/stats")
+    public List<TeamStatsDto> getTeamStats() {
+        return teamStatsRepository.findAll();
+    }
+
+    //팀별 소속 회원 - 팀 단위로 페이징
+    //ex) /teams/members?page=0&size=20
+    @GetMapping("/teams/members")
+    public Page<TeamMembersDto> getTeamsWithMembers(Pageable pageable) {
+        return teamQueryRepository.findTeamsWithMembers(pageable).map(TeamMembersDto::new);
+    }
+
+}
@@ -0,0 +1,97 @@
+package ex.querydsl.datasource;
+
+import ex.querydsl.event.EntityChangesCommittedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//로컬/테스트용 복제 대역
+//실제 DB 복제 대신 primary H2 를 SCRIPT 로 덤프해서 replica H2 에 통째로 다시 적용한다
+//쓰기가 커밋되면 lag 만큼 지난 뒤에 동기화해서 비동기 복제의 지연을 흉내낸다(그 사이의 커밋은 한 번에 반영)
+//스키마는 하이버네이트가 primary 에만 만들기 때문에 컨텍스트가 준비되면 한 번 동기화한 뒤에 replica 를 사용 가능으로 바꾼다
+@Slf4j
+public class H2ReplicationStandIn {
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReplicaRoutingPolicy policy;
+    private final Duration lag;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    public H2ReplicationStandIn(ReplicaDataSources dataSources, ReplicaRoutingPolicy policy, Duration lag) {
+        this.primary = dataSources.primary();
+        this.replica = dataSources.replica();
+        this.policy = policy;
+        this.lag = lag;
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void initialSync() {
+        sync();
+    }
+
+    @EventListener
+    public void onCommitted(EntityChangesCommittedEvent event) {
+        if(scheduled.compareAndSet(false, true)) {
+            scheduler.schedule(() -> {
+                scheduled.set(false);
+                try {
+                    sync();
+                } catch (RuntimeException e) {
+                    log.warn("replica 동기화 실패", e);
+                }
+            }, lag.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    //동기화하는 동안(replica 를 비우고 다시 채우는 동안)은 읽기를 primary 로 보낸다
+    //덤프하기 전까지 커밋된 변경은 동기화가 끝나면 replica 에 반영된 것이다(ReplicaRoutingPolicy.replicaCaughtUp)
+    public synchronized void sync() {
+        long sequence = policy.commitSequence();
+        policy.replicaAvailable(false);
+        try (Connection source = primary.getConnection();
+             Connection target = replica.getConnection();
+             Statement read = source.createStatement();
+             Statement write = target.createStatement()) {
+
+            List<String> script = new ArrayList<>();
+            try (ResultSet rs = read.executeQuery("SCRIPT")) {
+                while (rs.next()) {
+                    String sql = rs.getString(1);
+                    if(!sql.startsWith("--")) script.add(sql);
+                }
+            }
+
+            write.execute("DROP ALL OBJECTS");
+            for (String sql : script) {
+                write.execute(sql);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("replica 동기화 실패", e);
+        }
+        policy.replicaAvailable(true);
+        policy.replicaCaughtUp(sequence);
+    }
+
+    @PreDestroy
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+}
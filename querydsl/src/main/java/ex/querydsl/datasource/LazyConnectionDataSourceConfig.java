@@ -0,0 +1,43 @@
+package ex.querydsl.datasource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.PriorityOrdered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+//모든 DataSource 를 LazyConnectionDataSourceProxy 로 감싼다 - replica 라우팅 사용 여부와 관계없이
+//JpaTransactionManager 는 트랜잭션을 시작할 때 커넥션을 얻으므로 감싸지 않으면
+//SQL 을 실행하지 않는 바깥 트랜잭션(ex. PageQueryExecutor 가 가상 스레드로 쿼리를 넘긴 @Transactional(readOnly = true) 메서드)도
+//끝날 때까지 커넥션 하나를 잡고 있는다 - 병렬 페이징이면 요청 하나가 커넥션 세 개를 쓴다
+//감싸면 첫 SQL 을 실행할 때 실제 커넥션을 얻는다
+//측정 프록시(QueryMonitorConfig)보다 먼저 적용되도록 PriorityOrdered 로 둔다 - 측정 프록시 > 지연 프록시 > 풀
+@Configuration(proxyBeanMethods = false)
+public class LazyConnectionDataSourceConfig {
+
+    @Bean
+    static BeanPostProcessor lazyConnectionDataSourcePostProcessor() {
+        return new LazyConnectionDataSourcePostProcessor();
+    }
+
+    private static class LazyConnectionDataSourcePostProcessor implements BeanPostProcessor, PriorityOrdered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if(bean instanceof DataSource dataSource && !(bean instanceof LazyConnectionDataSourceProxy)) {
+                return new LazyConnectionDataSourceProxy(dataSource);
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+
+    }
+
+}
@@ -0,0 +1,87 @@
+package ex.querydsl.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+
+//읽기/쓰기 DataSource 라우팅 - datasource.replica.enabled=true 일 때만
+//JPAQueryFactory 와 스프링 데이터 리포지토리는 모두 같은 EntityManager(= 이 DataSource)를 사용하므로
+//@Transactional(readOnly = true) 로 실행되는 조회(검색 메서드 등)는 코드 변경 없이 replica 에서 실행된다
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    //primary 는 spring.datasource.*, replica 는 datasource.replica.* 설정을 사용한다
+    //풀 설정(spring.datasource.hikari.*)은 두 풀에 똑같이 적용한다 - 자동 설정의 DataSource 를 쓰지 않으므로 직접 바인딩한다
+    @Bean
+    ReplicaDataSources replicaDataSources(DataSourceProperties primaryProperties, Environment environment,
+                                          @Value("${datasource.replica.url}") String replicaUrl,
+                                          @Value("${datasource.replica.username:${spring.datasource.username:}}") String replicaUsername,
+                                          @Value("${datasource.replica.password:${spring.datasource.password:}}") String replicaPassword) {
+        Binder binder = Binder.get(environment);
+
+        HikariDataSource primary = primaryProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+
+        HikariDataSource replica = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(primaryProperties.determineDriverClassName())
+                .url(replicaUrl)
+                .username(replicaUsername)
+                .password(replicaPassword)
+                .build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(replica));
+        replica.setPoolName("replica");
+
+        return new ReplicaDataSources(primary, replica);
+    }
+
+    //복제 대역을 쓰면 첫 동기화가 끝날 때까지 replica 를 사용할 수 없다
+    //Clock 빈이 있으면 그 시계로 구간을 잰다(테스트)
+    @Bean
+    ReplicaRoutingPolicy replicaRoutingPolicy(@Value("${datasource.replica.read-your-writes-window:2s}") Duration readYourWritesWindow,
+                                              @Value("${datasource.replica.stand-in.enabled:false}") boolean standIn,
+                                              ObjectProvider<Clock> clock, ApplicationEventPublisher eventPublisher) {
+        return new ReplicaRoutingPolicy(readYourWritesWindow, !standIn, clock.getIfAvailable(Clock::systemUTC), eventPublisher);
+    }
+
+    @Bean
+    @Primary
+    DataSource dataSource(ReplicaDataSources dataSources, ReplicaRoutingPolicy policy) {
+        ReplicationRoutingDataSource routing = new ReplicationRoutingDataSource(policy);
+        routing.setTargetDataSources(Map.of(
+                ReplicationRoutingDataSource.Target.PRIMARY, dataSources.primary(),
+                ReplicationRoutingDataSource.Target.REPLICA, dataSources.replica()
+        ));
+        routing.setDefaultTargetDataSource(dataSources.primary());
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "datasource.replica.stand-in.enabled", havingValue = "true")
+    H2ReplicationStandIn h2ReplicationStandIn(ReplicaDataSources dataSources, ReplicaRoutingPolicy policy,
+                                              @Value("${datasource.replica.stand-in.lag:500ms}") Duration lag) {
+        return new H2ReplicationStandIn(dataSources, policy, lag);
+    }
+
+}
@@ -0,0 +1,16 @@
+package ex.querydsl.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+//쓰기(primary), 읽기(replica) 커넥션 풀
+//DataSource 빈으로 등록하면 JPA 자동 설정이나 DataSource 빈 후처리(SQL 측정 프록시) 대상이 되므로
+//라우팅 DataSource 하나만 빈으로 노출하고 실제 풀은 이 객체로 들고 있는다
+public record ReplicaDataSources(HikariDataSource primary, HikariDataSource replica) implements AutoCloseable {
+
+    @Override
+    public void close() {
+        replica.close();
+        primary.close();
+    }
+
+}
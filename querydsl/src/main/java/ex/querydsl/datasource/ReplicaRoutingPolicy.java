@@ -0,0 +1,191 @@
+package ex.querydsl.datasource;
+
+import ex.querydsl.event.EntityChangesCommittedEvent;
+import ex.querydsl.event.ReplicaCaughtUpEvent;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+//어떤 요청을 replica 로 보낼지 결정한다
+//- 읽기 전용 트랜잭션만 replica 로 보낸다(쓰기 트랜잭션, 트랜잭션 밖의 쿼리는 primary)
+//- 쓰기를 커밋한 클라이언트는 readYourWritesWindow 동안 읽기도 primary 로 보낸다
+//  replica 는 비동기로 따라오기 때문에 방금 쓴 데이터를 바로 다시 읽으면 예전 값을 볼 수 있다
+//  다른 클라이언트의 읽기는 계속 replica 로 보낸다 - 쓰기가 잦아도 읽기 부하가 primary 로 몰리지 않는다
+//- replica 를 쓸 수 없는 동안(첫 동기화 전 등)은 primary 로 보낸다
+//
+//클라이언트 구분
+//- HTTP 요청 : 쓰기를 커밋한 요청의 응답에 구간이 끝나는 시각(epoch millis)을 쿠키로 내려 주고 다음 요청에서 읽는다
+//  같은 요청 안에서는 요청 속성으로 확인한다
+//- 요청 밖(배치, 스케줄러, 테스트) : 쓰기를 커밋한 스레드 - 구간이 지나면 지운다
+//  스레드 풀의 스레드를 다른 작업이 이어 쓰면 남은 구간 동안은 그 작업도 primary 에서 읽는다(안전한 쪽)
+//
+//복제 따라잡기
+//다른 클라이언트는 커밋 직후에도 replica 에서 읽기 때문에 복제되기 전의 예전 결과가 검색 캐시에 담기거나
+//새 버전(ETag)이 붙어서 나갈 수 있다 - replica 가 따라잡으면 ReplicaCaughtUpEvent 를 발행해서 다시 무효화하게 한다
+//- 복제 상태를 아는 쪽(H2ReplicationStandIn)은 동기화가 끝나면 replicaCaughtUp(sequence) 로 알린다
+//- 그 밖에는 커밋 후 readYourWritesWindow(= 복제 지연의 상한)가 지나면 따라잡은 것으로 본다
+public class ReplicaRoutingPolicy {
+
+    public static final String READ_PRIMARY_UNTIL_COOKIE = "read-primary-until";
+    private static final String READ_PRIMARY_UNTIL_ATTRIBUTE = ReplicaRoutingPolicy.class.getName() + ".READ_PRIMARY_UNTIL";
+
+    private static final ThreadLocal<Long> threadReadPrimaryUntil = new ThreadLocal<>();
+
+    private final Duration readYourWritesWindow;
+    private final Clock clock;
+    private final ApplicationEventPublisher eventPublisher;
+    private volatile boolean replicaAvailable;
+
+    //아직 replica 가 따라잡았다고 알리지 않은 커밋 - 커밋 순서
+    private final Deque<PendingCommit> pendingCommits = new ArrayDeque<>();
+    private long commitSequence;
+    private boolean caughtUpScheduled;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    public ReplicaRoutingPolicy(Duration readYourWritesWindow, boolean replicaAvailable,
+                                Clock clock, ApplicationEventPublisher eventPublisher) {
+        this.readYourWritesWindow = readYourWritesWindow;
+        this.replicaAvailable = replicaAvailable;
+        this.clock = clock;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public boolean useReplica() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && replicaAvailable
+                && !readsOwnWrites();
+    }
+
+    //EntityChangesCommittedEvent 는 엔티티 변경(벌크 연산 포함)이 있었던 트랜잭션이 커밋된 뒤 커밋한 스레드에서 한 번 발생한다
+    @EventListener
+    public void onCommitted(EntityChangesCommittedEvent event) {
+        long now = clock.millis();
+        addPendingCommit(now, event.getEntityTypes());
+
+        long until = now + readYourWritesWindow.toMillis();
+        ServletRequestAttributes request = currentRequest();
+        if(request == null) {
+            threadReadPrimaryUntil.set(until);
+            return;
+        }
+        request.setAttribute(READ_PRIMARY_UNTIL_ATTRIBUTE, until, RequestAttributes.SCOPE_REQUEST);
+        HttpServletResponse response = request.getResponse();
+        //응답이 이미 나갔으면 쿠키를 붙일 수 없다 - 다음 요청은 replica 에서 읽을 수 있다
+        if(response != null && !response.isCommitted()) {
+            Cookie cookie = new Cookie(READ_PRIMARY_UNTIL_COOKIE, Long.toString(until));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, readYourWritesWindow.toSeconds() + 1));
+            response.addCookie(cookie);
+        }
+    }
+
+    public void replicaAvailable(boolean available) {
+        this.replicaAvailable = available;
+    }
+
+    //지금까지 커밋된 변경의 순번 - 복제를 시작하기 전에 읽어 두고 끝나면 replicaCaughtUp 에 넘긴다
+    public synchronized long commitSequence() {
+        return commitSequence;
+    }
+
+    //sequence 까지의 커밋이 replica 에 반영되었다
+    public void replicaCaughtUp(long sequence) {
+        publishCaughtUp(pendingCommit -> pendingCommit.sequence() <= sequence);
+    }
+
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private synchronized void addPendingCommit(long committedAt, Set<Class<?>> entityTypes) {
+        pendingCommits.addLast(new PendingCommit(++commitSequence, committedAt, entityTypes));
+        scheduleWindowElapsed(readYourWritesWindow.toMillis());
+    }
+
+    //커밋 후 readYourWritesWindow 가 지난 커밋은 따라잡은 것으로 본다
+    private void windowElapsed() {
+        long caughtUpBefore = clock.millis() - readYourWritesWindow.toMillis();
+        publishCaughtUp(pendingCommit -> pendingCommit.committedAt() <= caughtUpBefore);
+        synchronized (this) {
+            caughtUpScheduled = false;
+            PendingCommit oldest = pendingCommits.peekFirst();
+            if(oldest != null) {
+                scheduleWindowElapsed(Math.max(1, oldest.committedAt() - caughtUpBefore));
+            }
+        }
+    }
+
+    private synchronized void scheduleWindowElapsed(long delayMillis) {
+        if(caughtUpScheduled || scheduler.isShutdown()) return;
+        caughtUpScheduled = true;
+        scheduler.schedule(this::windowElapsed, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void publishCaughtUp(Predicate<PendingCommit> caughtUp) {
+        Set<Class<?>> entityTypes = new HashSet<>();
+        synchronized (this) {
+            while (!pendingCommits.isEmpty() && caughtUp.test(pendingCommits.peekFirst())) {
+                entityTypes.addAll(pendingCommits.pollFirst().entityTypes());
+            }
+        }
+        if(!entityTypes.isEmpty()) {
+            eventPublisher.publishEvent(new ReplicaCaughtUpEvent(entityTypes));
+        }
+    }
+
+    private boolean readsOwnWrites() {
+        Long until = readPrimaryUntil();
+        if(until == null) return false;
+        if(clock.millis() < until) return true;
+        //요청 밖이면 지난 구간을 스레드에서 지운다 - 스레드를 이어 쓰는 다른 작업에 남지 않도록
+        threadReadPrimaryUntil.remove();
+        return false;
+    }
+
+    private static Long readPrimaryUntil() {
+        ServletRequestAttributes request = currentRequest();
+        if(request == null) return threadReadPrimaryUntil.get();
+
+        if(request.getAttribute(READ_PRIMARY_UNTIL_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof Long until) {
+            return until;
+        }
+        HttpServletRequest servletRequest = request.getRequest();
+        if(servletRequest.getCookies() == null) return null;
+        for (Cookie cookie : servletRequest.getCookies()) {
+            if(READ_PRIMARY_UNTIL_COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static ServletRequestAttributes currentRequest() {
+        return RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes request ? request : null;
+    }
+
+    private record PendingCommit(long sequence, long committedAt, Set<Class<?>> entityTypes) {
+    }
+
+}
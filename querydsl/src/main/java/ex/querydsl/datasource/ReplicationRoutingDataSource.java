@@ -0,0 +1,25 @@
+package ex.querydsl.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+//커넥션을 얻을 때마다 ReplicaRoutingPolicy 에 따라 primary / replica 를 고른다
+//트랜잭션 매니저는 트랜잭션을 시작하면서(읽기 전용 여부가 동기화 매니저에 설정되기 전에) 커넥션을 얻기 때문에
+//LazyConnectionDataSourceProxy 로 감싸서 첫 SQL 을 실행할 때 실제 커넥션을 얻도록 해야 한다
+public class ReplicationRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Target {
+        PRIMARY, REPLICA
+    }
+
+    private final ReplicaRoutingPolicy policy;
+
+    public ReplicationRoutingDataSource(ReplicaRoutingPolicy policy) {
+        this.policy = policy;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return policy.useReplica() ? Target.REPLICA : Target.PRIMARY;
+    }
+
+}
@@ -0,0 +1,16 @@
+package ex.querydsl.dto;
+
+//페이지 전체 개수(total) 계산 방식
+public enum CountMode {
+
+    //count(*) 쿼리
+    EXACT,
+
+    //애플리케이션이 유지하는 통계(전체 행 수, 조건별 선택도)로 추정 - 쿼리를 실행하지 않는다
+    //통계가 아직 없으면 CAPPED 로 센다(응답의 countMode 가 CAPPED)
+    ESTIMATED,
+
+    //최대 N + 1 건까지만 세고 넘으면 "N+" 로 표시
+    CAPPED
+
+}
@@ -0,0 +1,36 @@
+package ex.querydsl.dto;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+//total 을 어떤 방식으로 구했는지 함께 담은 페이지
+//요청한 방식과 다를 수 있다 - 마지막 페이지처럼 content 만으로 total 을 알 수 있으면 count 없이 EXACT 가 된다
+//totalCapped 가 true 면 total 은 "total 건 이상"을 뜻한다
+public class CountedPage<T> extends PageImpl<T> {
+
+    private final CountMode countMode;
+
+    private final boolean totalCapped;
+
+    public CountedPage(List<T> content, Pageable pageable, long total, CountMode countMode, boolean totalCapped) {
+        super(content, pageable, total);
+        this.countMode = countMode;
+        this.totalCapped = totalCapped;
+    }
+
+    public static <T> CountedPage<T> exact(Page<T> page) {
+        return new CountedPage<>(page.getContent(), page.getPageable(), page.getTotalElements(), CountMode.EXACT, false);
+    }
+
+    public CountMode getCountMode() {
+        return countMode;
+    }
+
+    public boolean isTotalCapped() {
+        return totalCapped;
+    }
+
+}
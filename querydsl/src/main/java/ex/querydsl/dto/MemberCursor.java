@@ -0,0 +1,67 @@
+package ex.querydsl.dto;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+//키셋(seek) 페이징 커서
+//마지막으로 읽은 행의 정렬 키를 담아 다음 페이지는 offset 없이 where 조건으로 이어서 읽는다
+//클라이언트에게는 Base64 로 인코딩된 불투명한 토큰으로만 노출한다
+@Getter
+public class MemberCursor {
+
+    public enum SortKey {
+        ID, AGE, USERNAME
+    }
+
+    private final SortKey sortKey;
+
+    private final Long lastId;
+
+    private final Integer lastAge;
+
+    private final String lastUsername;
+
+    private MemberCursor(SortKey sortKey, Long lastId, Integer lastAge, String lastUsername) {
+        this.sortKey = sortKey;
+        this.lastId = lastId;
+        this.lastAge = lastAge;
+        this.lastUsername = lastUsername;
+    }
+
+    //첫 페이지 - 정렬 기준만 있고 마지막 키는 없다
+    public static MemberCursor first(SortKey sortKey) {
+        return new MemberCursor(sortKey, null, null, null);
+    }
+
+    //마지막 행을 기준으로 다음 커서 생성 - id 를 항상 포함해 정렬 키가 같은 행이 있어도 순서가 안정적이다
+    public static MemberCursor after(SortKey sortKey, MemberTeamDto last) {
+        return new MemberCursor(sortKey, last.getMemberId(), last.getAge(), last.getUsername());
+    }
+
+    public boolean isFirst() {
+        return lastId == null;
+    }
+
+    public String encode() {
+        String raw = sortKey.name() + "|" + lastId + "|" + (lastAge == null ? "" : lastAge) + "|"
+                + (lastUsername == null ? "" : lastUsername);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static MemberCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 4);
+            SortKey sortKey = SortKey.valueOf(parts[0]);
+            Long lastId = Long.valueOf(parts[1]);
+            Integer lastAge = parts[2].isEmpty() ? null : Integer.valueOf(parts[2]);
+            String lastUsername = parts[3].isEmpty() ? null : parts[3];
+            return new MemberCursor(sortKey, lastId, lastAge, lastUsername);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("잘못된 커서입니다: " + token, e);
+        }
+    }
+
+}
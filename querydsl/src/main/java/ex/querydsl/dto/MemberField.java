@@ -0,0 +1,47 @@
+package ex.querydsl.dto;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+
+//MemberTeamDto 응답 필드 - fields= 파라미터의 값은 프로퍼티 이름(memberId, username, ...)
+public enum MemberField {
+
+    MEMBER_ID("memberId"),
+    USERNAME("username"),
+    AGE("age"),
+    TEAM_ID("teamId"),
+    TEAM_NAME("teamName");
+
+    private final String property;
+
+    MemberField(String property) {
+        this.property = property;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public boolean isTeamField() {
+        return this == TEAM_ID || this == TEAM_NAME;
+    }
+
+    //비어 있으면 전체 필드
+    public static Set<MemberField> parse(Collection<String> properties) {
+        if(properties == null || properties.isEmpty()) return EnumSet.allOf(MemberField.class);
+        EnumSet<MemberField> fields = EnumSet.noneOf(MemberField.class);
+        for (String property : properties) {
+            fields.add(of(property.trim()));
+        }
+        return fields;
+    }
+
+    public static MemberField of(String property) {
+        for (MemberField field : values()) {
+            if(field.property.equals(property)) return field;
+        }
+        throw new IllegalArgumentException("알 수 없는 필드입니다: " + property);
+    }
+
+}
@@ -4,23 +4,52 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 @Data
 @NoArgsConstructor
 public class MemberSearch {
 
     private String username;
 
+    //이름 접두어(대소문자 무시)
+    private String usernamePrefix;
+
+    //이름(대소문자, 앞뒤 공백 무시)
+    private String usernameIgnoreCase;
+
     private String teamName;
 
     private Integer ageGoe;
 
     private Integer ageLoe;
 
+    //여러 값 조건 - 목록 중 하나와 일치(IN), 비어 있으면 조건 없음
+    //ex) ?teamNames=TeamA,TeamB 또는 ?teamNames=TeamA&teamNames=TeamB
+    private List<String> usernames;
+
+    private List<String> teamNames;
+
+    private List<Long> memberIds;
+
+    //응답에 담을 필드(MemberField 의 프로퍼티 이름) - 비어 있으면 전체
+    //ex) ?fields=username,age > 팀 조건이 없으면 team 조인 없이 이름, 나이만 조회한다
+    private List<String> fields;
+
     @Builder
-    public MemberSearch(String username, String teamName, Integer ageGoe, Integer ageLoe) {
+    public MemberSearch(String username, String usernamePrefix, String usernameIgnoreCase,
+                        String teamName, Integer ageGoe, Integer ageLoe,
+                        List<String> usernames, List<String> teamNames, List<Long> memberIds,
+                        List<String> fields) {
         this.username = username;
+        this.usernamePrefix = usernamePrefix;
+        this.usernameIgnoreCase = usernameIgnoreCase;
         this.teamName = teamName;
         this.ageGoe = ageGoe;
         this.ageLoe = ageLoe;
+        this.usernames = usernames;
+        this.teamNames = teamNames;
+        this.memberIds = memberIds;
+        this.fields = fields;
     }
 }
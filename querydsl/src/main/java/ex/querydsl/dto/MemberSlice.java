@@ -0,0 +1,24 @@
+package ex.querydsl.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+//커서 기반 조회 결과
+//total count 를 계산하지 않고 다음 페이지 존재 여부와 다음 커서만 돌려준다
+@Getter
+public class MemberSlice {
+
+    private final List<MemberTeamDto> content;
+
+    private final boolean hasNext;
+
+    private final String nextCursor;
+
+    public MemberSlice(List<MemberTeamDto> content, boolean hasNext, String nextCursor) {
+        this.content = content;
+        this.hasNext = hasNext;
+        this.nextCursor = nextCursor;
+    }
+
+}
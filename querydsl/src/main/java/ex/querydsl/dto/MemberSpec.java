@@ -0,0 +1,23 @@
+package ex.querydsl.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//대량 등록용 회원 명세 - 팀은 이름으로 지정한다(없으면 생성)
+@Data
+@NoArgsConstructor
+public class MemberSpec {
+
+    private String username;
+
+    private int age;
+
+    private String teamName;
+
+    public MemberSpec(String username, int age, String teamName) {
+        this.username = username;
+        this.age = age;
+        this.teamName = teamName;
+    }
+
+}
@@ -3,22 +3,25 @@ package ex.querydsl.dto;
 import com.querydsl.core.annotations.QueryProjection;
 import ex.querydsl.entity.Member;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
+@NoArgsConstructor
 public class MemberTeamDto {
 
     private Long memberId;
 
     private String username;
 
-    private int age;
+    //fields 로 나이를 빼고 조회하면 null
+    private Integer age;
 
     private Long teamId;
 
     private String teamName;
 
     @QueryProjection
-    public MemberTeamDto(Long memberId, String username, int age, Long teamId, String teamName) {
+    public MemberTeamDto(Long memberId, String username, Integer age, Long teamId, String teamName) {
         this.memberId = memberId;
         this.username = username;
         this.age = age;
@@ -0,0 +1,49 @@
+package ex.querydsl.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+
+//MemberTeamDto 직접 직렬화 - 간결한 응답 형식(MemberPageMessageConverter)에서만 쓴다
+//기본 JSON 응답(ObjectMapper)에는 등록하지 않는다 - 기본 형식은 null 필드도 그대로 내보낸다
+//기본 BeanSerializer 는 응답마다 프로퍼티 목록을 돌면서 getter 를 리플렉션으로 호출하고 필드 이름을 인코딩한다
+//필드가 고정되어 있으므로 getter 를 직접 호출하고 필드 이름은 미리 인코딩해 둔 값을 쓴다
+//값이 없는(null) 필드는 쓰지 않는다 - 팀이 없는 회원은 teamId, teamName 이 빠지고 fields 로 고르지 않은 필드도 빠진다
+public final class MemberTeamDtoSerializer {
+
+    private static final SerializedString MEMBER_ID = new SerializedString("memberId");
+    private static final SerializedString USERNAME = new SerializedString("username");
+    private static final SerializedString AGE = new SerializedString("age");
+    private static final SerializedString TEAM_ID = new SerializedString("teamId");
+    private static final SerializedString TEAM_NAME = new SerializedString("teamName");
+
+    private MemberTeamDtoSerializer() {
+    }
+
+    public static void write(MemberTeamDto dto, JsonGenerator gen) throws IOException {
+        gen.writeStartObject(dto);
+        if(dto.getMemberId() != null) {
+            gen.writeFieldName(MEMBER_ID);
+            gen.writeNumber(dto.getMemberId());
+        }
+        if(dto.getUsername() != null) {
+            gen.writeFieldName(USERNAME);
+            gen.writeString(dto.getUsername());
+        }
+        if(dto.getAge() != null) {
+            gen.writeFieldName(AGE);
+            gen.writeNumber(dto.getAge());
+        }
+        if(dto.getTeamId() != null) {
+            gen.writeFieldName(TEAM_ID);
+            gen.writeNumber(dto.getTeamId());
+        }
+        if(dto.getTeamName() != null) {
+            gen.writeFieldName(TEAM_NAME);
+            gen.writeString(dto.getTeamName());
+        }
+        gen.writeEndObject();
+    }
+
+}
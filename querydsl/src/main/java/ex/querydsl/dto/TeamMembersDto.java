@@ -0,0 +1,27 @@
+package ex.querydsl.dto;
+
+import ex.querydsl.entity.Team;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class TeamMembersDto {
+
+    private Long teamId;
+
+    private String teamName;
+
+    private List<MemberDto> members;
+
+    public TeamMembersDto(Team team) {
+        this.teamId = team.getId();
+        this.teamName = team.getName();
+        this.members = team.getMembers().stream()
+                .map(member -> new MemberDto(member.getUsername(), member.getAge()))
+                .toList();
+    }
+
+}
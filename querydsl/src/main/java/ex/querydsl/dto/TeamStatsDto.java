@@ -0,0 +1,29 @@
+package ex.querydsl.dto;
+
+import lombok.Data;
+
+@Data
+public class TeamStatsDto {
+
+    private Long teamId;
+
+    private String teamName;
+
+    private long memberCount;
+
+    private Double averageAge;
+
+    private Integer minAge;
+
+    private Integer maxAge;
+
+    public TeamStatsDto(Long teamId, String teamName, long memberCount, Double averageAge, Integer minAge, Integer maxAge) {
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.memberCount = memberCount;
+        this.averageAge = averageAge;
+        this.minAge = minAge;
+        this.maxAge = maxAge;
+    }
+
+}
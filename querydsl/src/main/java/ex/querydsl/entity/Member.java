@@ -3,19 +3,35 @@ package ex.querydsl.entity;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.util.Locale;
+
 @Entity
+//MemberSearch 조건별 인덱스 - 조건을 추가하면 IndexAdvisorTest 가 인덱스를 타는지 확인한다
+@Table(indexes = {
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_username_normalized", columnList = "username_normalized"),
+        //팀 + 나이 범위 조건, 팀 조인(team_id) 모두 이 인덱스를 사용한다
+        @Index(name = "idx_member_team_age", columnList = "team_id, age"),
+        @Index(name = "idx_member_age", columnList = "age")
+})
 @Getter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"})
 public class Member {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 50)
     @Column(name = "member_id")
     private Long id;
 
     private String username;
 
+    //대소문자 무시 / 접두어 검색용 정규화(trim + 소문자) 컬럼
+    //lower(username) 같은 함수 조건은 인덱스를 탈 수 없으므로 정규화한 값을 따로 저장하고 인덱스를 건다
+    @Column(name = "username_normalized")
+    private String usernameNormalized;
+
     private int age;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -25,6 +41,7 @@ public class Member {
     @Builder
     public Member(String username, int age, Team team) {
         this.username = username;
+        this.usernameNormalized = normalizeUsername(username);
         this.age = age;
         if(team != null){
             changeTeam(team);
@@ -36,4 +53,14 @@ public class Member {
         team.getMembers().add(this);
     }
 
+    @PrePersist
+    @PreUpdate
+    void normalizeUsername() {
+        this.usernameNormalized = normalizeUsername(username);
+    }
+
+    public static String normalizeUsername(String username) {
+        return username != null ? username.trim().toLowerCase(Locale.ROOT) : null;
+    }
+
 }
@@ -0,0 +1,49 @@
+package ex.querydsl.event;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+//행 단위 이벤트를 트랜잭션마다 모아 두었다가 커밋 후 한 번에 넘긴다 - 롤백되면 버린다
+//@TransactionalEventListener 는 이벤트마다 TransactionSynchronization 을 등록하므로
+//대량 등록처럼 한 트랜잭션에서 이벤트가 많으면 트랜잭션이 끝날 때까지 그만큼 쌓이고 커밋 후 하나씩 호출된다
+//여기서는 트랜잭션마다 TransactionSynchronization 하나만 등록한다(EntityChangeEventPublisher.changedTypes 와 같은 방식)
+//트랜잭션 밖이면 바로 넘긴다
+public final class AfterCommitBuffer<E> {
+
+    private final Consumer<List<E>> consumer;
+
+    public AfterCommitBuffer(Consumer<List<E>> consumer) {
+        this.consumer = consumer;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void add(E event) {
+        if(!TransactionSynchronizationManager.isSynchronizationActive()) {
+            consumer.accept(List.of(event));
+            return;
+        }
+        List<E> pending = (List<E>) TransactionSynchronizationManager.getResource(this);
+        if(pending == null) {
+            List<E> newPending = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, newPending);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    consumer.accept(newPending);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(AfterCommitBuffer.this);
+                }
+            });
+            pending = newPending;
+        }
+        pending.add(event);
+    }
+
+}
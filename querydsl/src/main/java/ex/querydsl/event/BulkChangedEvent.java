@@ -0,0 +1,36 @@
+package ex.querydsl.event;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Set;
+
+//벌크 연산(update/delete 쿼리) 이벤트
+//영속성 컨텍스트를 거치지 않아 행 단위 이벤트가 발생하지 않으므로
+//행 단위로 관리하는 파생 데이터(통계, 인덱스 등)는 이 이벤트를 받으면 DB 기준으로 다시 만들어야 한다
+//chunk 로 나눠 실행해도 벌크 연산 하나에 한 번 발행한다
+//attributes : 바꾼 속성 이름(엔티티 필드 이름) - 비어 있으면 행 삭제처럼 모든 속성이 바뀐 것으로 본다
+//파생 데이터는 자기가 쓰는 속성이 바뀌지 않았으면 다시 만들지 않는다(ex. 나이만 바꾼 벌크 연산 > 이름 트라이는 그대로)
+@Getter
+@ToString
+public class BulkChangedEvent {
+
+    private final Class<?> entityType;
+
+    private final Set<String> attributes;
+
+    public BulkChangedEvent(Class<?> entityType, Set<String> attributes) {
+        this.entityType = entityType;
+        this.attributes = Set.copyOf(attributes);
+    }
+
+    public boolean affects(Class<?> type, String... attributeNames) {
+        if(entityType != type) return false;
+        if(attributes.isEmpty()) return true;
+        for (String attributeName : attributeNames) {
+            if(attributes.contains(attributeName)) return true;
+        }
+        return false;
+    }
+
+}
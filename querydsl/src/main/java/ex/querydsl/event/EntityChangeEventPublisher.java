@@ -0,0 +1,145 @@
+package ex.querydsl.event;
+
+import ex.querydsl.entity.Member;
+import ex.querydsl.entity.Team;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.Set;
+
+//하이버네이트 엔티티 이벤트를 스프링 이벤트로 변환
+//JPA 엔티티 리스너(@PostUpdate)는 변경 전 상태를 알 수 없기 때문에 하이버네이트 이벤트 리스너를 직접 등록한다
+//- 행 단위 이벤트(MemberChangedEvent, TeamChangedEvent) : 플러시 시점에 즉시 발행
+//- EntityChangesCommittedEvent : 트랜잭션 커밋 후 한 번 발행
+@Component
+@RequiredArgsConstructor
+public class EntityChangeEventPublisher implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if(event.getEntity() instanceof Member member) {
+            publish(Member.class, new MemberChangedEvent(MemberChangedEvent.Type.PERSISTED, member.getId(),
+                    null, null, null,
+                    member.getUsername(), member.getAge(), teamId(member.getTeam())));
+        } else if(event.getEntity() instanceof Team team) {
+            publish(Team.class, new TeamChangedEvent(TeamChangedEvent.Type.PERSISTED, team.getId(), team.getName()));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if(event.getEntity() instanceof Member member) {
+            Object[] oldState = event.getOldState();
+            String[] properties = event.getPersister().getPropertyNames();
+            publish(Member.class, new MemberChangedEvent(MemberChangedEvent.Type.UPDATED, member.getId(),
+                    (String) property(oldState, properties, "username"),
+                    (Integer) property(oldState, properties, "age"),
+                    teamId((Team) property(oldState, properties, "team")),
+                    member.getUsername(), member.getAge(), teamId(member.getTeam())));
+        } else if(event.getEntity() instanceof Team team) {
+            publish(Team.class, new TeamChangedEvent(TeamChangedEvent.Type.UPDATED, team.getId(), team.getName()));
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if(event.getEntity() instanceof Member member) {
+            publish(Member.class, new MemberChangedEvent(MemberChangedEvent.Type.REMOVED, member.getId(),
+                    member.getUsername(), member.getAge(), teamId(member.getTeam()),
+                    null, null, null));
+        } else if(event.getEntity() instanceof Team team) {
+            publish(Team.class, new TeamChangedEvent(TeamChangedEvent.Type.REMOVED, team.getId(), team.getName()));
+        }
+    }
+
+    //JPA 를 거치지 않는 변경(벌크 연산 등)도 커밋 후 이벤트에 포함시킨다
+    public void markChanged(Class<?> entityType) {
+        if(!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eventPublisher.publishEvent(new EntityChangesCommittedEvent(Set.of(entityType)));
+            return;
+        }
+        changedTypes().add(entityType);
+    }
+
+    //벌크 연산 - 행 단위 이벤트 대신 BulkChangedEvent 를 발행한다
+    //chunk 마다 커밋하는 벌크 연산은 chunk 마다 markChanged 하고 모든 chunk 가 끝난 뒤 한 번 호출한다
+    public void bulkChanged(Class<?> entityType, Set<String> attributes) {
+        eventPublisher.publishEvent(new BulkChangedEvent(entityType, attributes));
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private void publish(Class<?> entityType, Object event) {
+        eventPublisher.publishEvent(event);
+        markChanged(entityType);
+    }
+
+    //트랜잭션마다 변경된 엔티티 타입을 모아 두었다가 커밋 후 한 번만 발행한다
+    //행마다 TransactionSynchronization 을 등록하면 대량 등록 시 트랜잭션이 끝날 때까지 그만큼 쌓이게 된다
+    @SuppressWarnings("unchecked")
+    private Set<Class<?>> changedTypes() {
+        Set<Class<?>> changedTypes = (Set<Class<?>>) TransactionSynchronizationManager.getResource(this);
+        if(changedTypes == null) {
+            Set<Class<?>> newTypes = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(this, newTypes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eventPublisher.publishEvent(new EntityChangesCommittedEvent(Set.copyOf(newTypes)));
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(EntityChangeEventPublisher.this);
+                }
+            });
+            changedTypes = newTypes;
+        }
+        return changedTypes;
+    }
+
+    private static Object property(Object[] state, String[] properties, String name) {
+        if(state == null) return null;
+        for (int i = 0; i < properties.length; i++) {
+            if(properties[i].equals(name)) return state[i];
+        }
+        return null;
+    }
+
+    private static Long teamId(Team team) {
+        return team != null ? team.getId() : null;
+    }
+
+}
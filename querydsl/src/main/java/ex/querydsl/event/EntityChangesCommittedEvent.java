@@ -0,0 +1,24 @@
+package ex.querydsl.event;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Set;
+
+//트랜잭션 커밋 후 한 번 발생하는 이벤트
+//행 단위 이벤트와 달리 트랜잭션당 한 번만 발생하므로 "무언가 바뀌었다"만 알면 되는 캐시 무효화 등에 사용한다
+@Getter
+@ToString
+public class EntityChangesCommittedEvent {
+
+    private final Set<Class<?>> entityTypes;
+
+    public EntityChangesCommittedEvent(Set<Class<?>> entityTypes) {
+        this.entityTypes = entityTypes;
+    }
+
+    public boolean contains(Class<?> entityType) {
+        return entityTypes.contains(entityType);
+    }
+
+}
@@ -0,0 +1,46 @@
+package ex.querydsl.event;
+
+import lombok.Getter;
+import lombok.ToString;
+
+//Member 엔티티 변경 이벤트
+//플러시 시점에 발생하며 변경 전(old) / 변경 후 상태를 함께 담는다
+//등록이면 old 값이 null, 삭제면 변경 후 값이 null 이다
+@Getter
+@ToString
+public class MemberChangedEvent {
+
+    public enum Type {
+        PERSISTED, UPDATED, REMOVED
+    }
+
+    private final Type type;
+
+    private final Long memberId;
+
+    private final String oldUsername;
+
+    private final Integer oldAge;
+
+    private final Long oldTeamId;
+
+    private final String username;
+
+    private final Integer age;
+
+    private final Long teamId;
+
+    public MemberChangedEvent(Type type, Long memberId,
+                              String oldUsername, Integer oldAge, Long oldTeamId,
+                              String username, Integer age, Long teamId) {
+        this.type = type;
+        this.memberId = memberId;
+        this.oldUsername = oldUsername;
+        this.oldAge = oldAge;
+        this.oldTeamId = oldTeamId;
+        this.username = username;
+        this.age = age;
+        this.teamId = teamId;
+    }
+
+}
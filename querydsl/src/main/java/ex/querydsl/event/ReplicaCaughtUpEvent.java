@@ -0,0 +1,26 @@
+package ex.querydsl.event;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Set;
+
+//replica 가 커밋된 변경을 따라잡은 뒤 발생하는 이벤트(replica 라우팅을 쓸 때만)
+//커밋 직후에는 다른 클라이언트가 아직 복제되지 않은 replica 에서 예전 데이터를 읽을 수 있으므로
+//그 사이에 캐시에 담기거나 새 버전(ETag)이 붙은 결과는 이 이벤트를 받으면 다시 무효화해야 한다
+//entityTypes : 그동안 커밋된 변경의 엔티티 타입
+@Getter
+@ToString
+public class ReplicaCaughtUpEvent {
+
+    private final Set<Class<?>> entityTypes;
+
+    public ReplicaCaughtUpEvent(Set<Class<?>> entityTypes) {
+        this.entityTypes = entityTypes;
+    }
+
+    public boolean contains(Class<?> entityType) {
+        return entityTypes.contains(entityType);
+    }
+
+}
@@ -0,0 +1,27 @@
+package ex.querydsl.event;
+
+import lombok.Getter;
+import lombok.ToString;
+
+//Team 엔티티 변경 이벤트 - 플러시 시점에 발생
+@Getter
+@ToString
+public class TeamChangedEvent {
+
+    public enum Type {
+        PERSISTED, UPDATED, REMOVED
+    }
+
+    private final Type type;
+
+    private final Long teamId;
+
+    private final String name;
+
+    public TeamChangedEvent(Type type, Long teamId, String name) {
+        this.type = type;
+        this.teamId = teamId;
+        this.name = name;
+    }
+
+}
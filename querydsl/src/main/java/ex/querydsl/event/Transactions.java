@@ -0,0 +1,18 @@
+package ex.querydsl.event;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+//현재 스레드의 트랜잭션 상태
+//쓰기 트랜잭션 안의 조회는 커밋되지 않은(롤백될 수 있는) 변경을 보므로 그 결과를 다른 요청과 나누거나(캐시, 합치기)
+//다른 커넥션에서 같은 결과를 기대하면(동시 실행, 커밋된 데이터만 담은 메모리 인덱스) 안 된다
+public final class Transactions {
+
+    private Transactions() {
+    }
+
+    public static boolean inReadWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+}
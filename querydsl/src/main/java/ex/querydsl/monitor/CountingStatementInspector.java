@@ -0,0 +1,15 @@
+package ex.querydsl.monitor;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+//하이버네이트가 PreparedStatement 를 만들 때마다 호출된다 - SQL 을 바꾸지 않고 세기만 한다
+//JDBC 배치는 문장을 한 번 준비해서 여러 번 addBatch 하므로 한 번으로 센다
+public class CountingStatementInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        QueryCounter.statement(sql);
+        return sql;
+    }
+
+}
@@ -0,0 +1,88 @@
+package ex.querydsl.monitor;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+//StatementInspector 는 SQL 문자열만 볼 수 있으므로 조회한 행 수와 JDBC 실행 시간은 DataSource 를 감싸서 잰다
+//DataSource > Connection > Statement > ResultSet 순서로 JDK 동적 프록시를 씌운다
+//  Statement.execute* : 실행 시간
+//  ResultSet.next     : true 를 반환한 횟수 = 읽은 행 수
+final class JdbcCountingProxy {
+
+    private JdbcCountingProxy() {
+    }
+
+    static DataSource wrap(DataSource dataSource) {
+        return proxy(DataSource.class, dataSource, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            return result instanceof Connection connection ? wrap(connection) : result;
+        });
+    }
+
+    private static Connection wrap(Connection connection) {
+        return proxy(Connection.class, connection, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            if(result instanceof CallableStatement statement) return wrap(CallableStatement.class, statement);
+            if(result instanceof PreparedStatement statement) return wrap(PreparedStatement.class, statement);
+            if(result instanceof Statement statement) return wrap(Statement.class, statement);
+            return result;
+        });
+    }
+
+    private static <S extends Statement> S wrap(Class<S> type, S statement) {
+        return proxy(type, statement, (target, method, args) -> {
+            if(!method.getName().startsWith("execute")) {
+                Object result = invoke(target, method, args);
+                return result instanceof ResultSet resultSet && method.getName().equals("getResultSet") ? wrap(resultSet) : result;
+            }
+            long start = System.nanoTime();
+            try {
+                Object result = invoke(target, method, args);
+                return result instanceof ResultSet resultSet ? wrap(resultSet) : result;
+            } finally {
+                QueryCounter.jdbcTime(System.nanoTime() - start);
+            }
+        });
+    }
+
+    private static ResultSet wrap(ResultSet resultSet) {
+        return proxy(ResultSet.class, resultSet, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            if(Boolean.TRUE.equals(result) && method.getName().equals("next")) {
+                QueryCounter.rows(1);
+            }
+            return result;
+        });
+    }
+
+    private interface Handler {
+        Object handle(Object target, Method method, Object[] args) throws Throwable;
+    }
+
+    private static <T> T proxy(Class<T> type, T target, Handler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> {
+            //커넥션 풀 등이 프록시를 Map 키로 쓸 수 있으므로 equals / hashCode 는 프록시 자신 기준
+            if(method.getName().equals("equals") && args != null && args.length == 1) return proxy == args[0];
+            if(method.getName().equals("hashCode") && args == null) return System.identityHashCode(proxy);
+            return handler.handle(target, method, args);
+        };
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, invocationHandler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+}
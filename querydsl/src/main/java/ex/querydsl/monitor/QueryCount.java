@@ -0,0 +1,68 @@
+package ex.querydsl.monitor;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+//한 구간(HTTP 요청, 리포지토리 메서드 호출, 테스트)에서 실행된 SQL 통계
+//가상 스레드로 넘어간 쿼리도 같은 구간에 더해질 수 있으므로 스레드 안전하게 센다
+public class QueryCount {
+
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder jdbcNanos = new LongAdder();
+    private final Map<String, LongAdder> statementsBySql = new ConcurrentHashMap<>();
+
+    void statement(String sql) {
+        statements.increment();
+        statementsBySql.computeIfAbsent(sql, key -> new LongAdder()).increment();
+    }
+
+    void rows(long count) {
+        rows.add(count);
+    }
+
+    void jdbcTime(long nanos) {
+        jdbcNanos.add(nanos);
+    }
+
+    public long getStatements() {
+        return statements.sum();
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    public long getJdbcTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(jdbcNanos.sum());
+    }
+
+    public long getJdbcTimeNanos() {
+        return jdbcNanos.sum();
+    }
+
+    //실행된 SQL (중복 제거)
+    public List<String> getSqls() {
+        return List.copyOf(statementsBySql.keySet());
+    }
+
+    //같은 SQL 이 threshold 번 이상 실행됐다면 N+1 을 의심할 수 있다
+    //ex) 회원 목록을 조회한 뒤 지연 로딩으로 팀을 하나씩 조회하면 "select ... from team where team_id=?" 가 회원 수만큼 반복된다
+    public Map<String, Long> repeatedStatements(int threshold) {
+        Map<String, Long> repeated = new LinkedHashMap<>();
+        statementsBySql.forEach((sql, count) -> {
+            if(count.sum() >= threshold) repeated.put(sql, count.sum());
+        });
+        return repeated;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryCount(statements=" + getStatements() + ", rows=" + getRows() + ", jdbcTimeMillis=" + getJdbcTimeMillis() + ")";
+    }
+
+}
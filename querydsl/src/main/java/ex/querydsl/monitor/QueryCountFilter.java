@@ -0,0 +1,43 @@
+package ex.querydsl.monitor;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+//HTTP 요청 단위 SQL 측정
+//응답 헤더는 본문을 쓰기 전에 붙여야 하므로 QueryCountHeaderAdvice 가 요청 속성에 담긴 QueryCount 를 읽어서 붙인다
+@Component
+@RequiredArgsConstructor
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    public static final String ATTRIBUTE = QueryCount.class.getName();
+
+    private final QueryCountRecorder recorder;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        QueryCount count = QueryCounter.start();
+        request.setAttribute(ATTRIBUTE, count);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            QueryCounter.stop(count);
+            recorder.record("http", request.getMethod() + " " + uriPattern(request), count);
+        }
+    }
+
+    //메트릭 태그가 무한히 늘어나지 않도록 실제 URI 가 아니라 매핑된 패턴을 쓴다
+    private static String uriPattern(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : "UNKNOWN";
+    }
+
+}
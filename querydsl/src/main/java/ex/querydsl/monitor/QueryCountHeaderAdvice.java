@@ -0,0 +1,38 @@
+package ex.querydsl.monitor;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+//개발 환경에서 응답 헤더로 요청당 SQL 통계를 보여준다
+//ex) X-Query-Count: 2, X-Query-Rows: 21, X-Query-Time-Ms: 3
+//컨트롤러가 반환한 뒤 본문을 쓰기 직전에 붙이므로 StreamingResponseBody 처럼 본문을 쓰면서 실행되는 쿼리는 빠진다
+@ControllerAdvice
+@ConditionalOnProperty(name = "query.monitor.response-headers", havingValue = "true")
+public class QueryCountHeaderAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if(request instanceof ServletServerHttpRequest servletRequest
+                && servletRequest.getServletRequest().getAttribute(QueryCountFilter.ATTRIBUTE) instanceof QueryCount count) {
+            response.getHeaders().set("X-Query-Count", String.valueOf(count.getStatements()));
+            response.getHeaders().set("X-Query-Rows", String.valueOf(count.getRows()));
+            response.getHeaders().set("X-Query-Time-Ms", String.valueOf(count.getJdbcTimeMillis()));
+        }
+        return body;
+    }
+
+}
@@ -0,0 +1,41 @@
+package ex.querydsl.monitor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+//측정 구간이 끝나면 메트릭으로 기록하고 N+1 이 의심되면 경고 로그를 남긴다
+//  query.statements / query.rows : 구간당 SQL 수, 읽은 행 수 분포
+//  query.jdbc.time               : 구간당 JDBC 실행 시간
+//  태그 - scope(http, repository), name(요청 URI 패턴 또는 리포지토리.메서드)
+@Slf4j
+@Component
+public class QueryCountRecorder {
+
+    private final MeterRegistry meterRegistry;
+    private final int nPlusOneThreshold;
+
+    public QueryCountRecorder(MeterRegistry meterRegistry,
+                              @Value("${query.monitor.n-plus-one-threshold:5}") int nPlusOneThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.nPlusOneThreshold = nPlusOneThreshold;
+    }
+
+    public void record(String scope, String name, QueryCount count) {
+        meterRegistry.summary("query.statements", "scope", scope, "name", name).record(count.getStatements());
+        meterRegistry.summary("query.rows", "scope", scope, "name", name).record(count.getRows());
+        meterRegistry.timer("query.jdbc.time", "scope", scope, "name", name)
+                .record(count.getJdbcTimeNanos(), TimeUnit.NANOSECONDS);
+
+        Map<String, Long> repeated = count.repeatedStatements(nPlusOneThreshold);
+        if(!repeated.isEmpty()) {
+            meterRegistry.counter("query.n-plus-one", "scope", scope, "name", name).increment();
+            repeated.forEach((sql, times) -> log.warn("N+1 의심 [{} {}] 같은 SQL 이 {}번 실행됨: {}", scope, name, times, sql));
+        }
+    }
+
+}
@@ -0,0 +1,81 @@
+package ex.querydsl.monitor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+//현재 스레드에서 열려 있는 측정 구간들
+//HTTP 요청 안에서 리포지토리 메서드가 호출되면 두 구간이 동시에 열려 있고 SQL 은 양쪽에 모두 더해진다
+//구간이 없으면 아무것도 세지 않으므로 측정하지 않는 스레드의 비용은 ThreadLocal 조회 한 번이다
+public final class QueryCounter {
+
+    private static final ThreadLocal<List<QueryCount>> ACTIVE = new ThreadLocal<>();
+
+    private QueryCounter() {
+    }
+
+    public static QueryCount start() {
+        QueryCount count = new QueryCount();
+        List<QueryCount> active = ACTIVE.get();
+        if(active == null) {
+            active = new ArrayList<>();
+            ACTIVE.set(active);
+        }
+        active.add(count);
+        return count;
+    }
+
+    public static void stop(QueryCount count) {
+        List<QueryCount> active = ACTIVE.get();
+        if(active == null) return;
+        active.remove(count);
+        if(active.isEmpty()) ACTIVE.remove();
+    }
+
+    //다른 스레드(PageQueryExecutor 의 가상 스레드 등)에서 실행되는 쿼리도 호출한 쪽 구간에 포함시키기 위해
+    //현재 열린 구간을 넘겨받아 작업하는 동안만 연다
+    public static List<QueryCount> capture() {
+        List<QueryCount> active = ACTIVE.get();
+        return active != null ? List.copyOf(active) : List.of();
+    }
+
+    public static <T> T callWith(List<QueryCount> counts, Supplier<T> task) {
+        if(counts.isEmpty()) return task.get();
+        List<QueryCount> previous = ACTIVE.get();
+        ACTIVE.set(new ArrayList<>(counts));
+        try {
+            return task.get();
+        } finally {
+            if(previous != null) {
+                ACTIVE.set(previous);
+            } else {
+                ACTIVE.remove();
+            }
+        }
+    }
+
+    static void statement(String sql) {
+        List<QueryCount> active = ACTIVE.get();
+        if(active == null) return;
+        for (QueryCount count : active) {
+            count.statement(sql);
+        }
+    }
+
+    static void rows(long rows) {
+        List<QueryCount> active = ACTIVE.get();
+        if(active == null) return;
+        for (QueryCount count : active) {
+            count.rows(rows);
+        }
+    }
+
+    static void jdbcTime(long nanos) {
+        List<QueryCount> active = ACTIVE.get();
+        if(active == null) return;
+        for (QueryCount count : active) {
+            count.jdbcTime(nanos);
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+package ex.querydsl.monitor;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+
+//SQL 측정 설정
+//  StatementInspector : 실행한 SQL 수와 SQL 별 횟수(N+1 탐지)
+//  DataSource 프록시  : 읽은 행 수, JDBC 실행 시간 - query.monitor.response-headers=true 일 때만(개발 환경)
+//                       JDBC 호출마다(ResultSet.next() 포함) 동적 프록시를 거치므로 운영에서는 감싸지 않는다
+//                       감싸지 않으면 행 수와 JDBC 시간은 0 으로 기록된다
+//  리포지토리 프록시   : 스프링 데이터 리포지토리와 @Repository 클래스(MemberJpaRepository 등)의 메서드 단위 구간
+@Configuration(proxyBeanMethods = false)
+public class QueryMonitorConfig {
+
+    @Bean
+    HibernatePropertiesCustomizer countingStatementInspector() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new CountingStatementInspector());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "query.monitor.response-headers", havingValue = "true")
+    static BeanPostProcessor countingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource ? JdbcCountingProxy.wrap(dataSource) : bean;
+            }
+        };
+    }
+
+    //리포지토리 프록시를 만들 때 메서드 호출마다 구간을 여는 어드바이스를 추가한다
+    //ex) MemberRepository.searchPageSimple 에서 실행된 SQL 수
+    //스프링 데이터가 만들지 않는 @Repository 클래스는 빈 프록시(없으면 새로 만든 클래스 프록시)에 같은 어드바이스를 붙인다
+    @Bean
+    static BeanPostProcessor repositoryQueryCountPostProcessor(ObjectProvider<QueryCountRecorder> recorder) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if(bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, repositoryInformation) -> {
+                                String repositoryName = repositoryInformation.getRepositoryInterface().getSimpleName();
+                                proxyFactory.addAdvice(repositoryMethodInterceptor(repositoryName, recorder));
+                            }));
+                }
+                return bean;
+            }
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                //스프링 데이터 리포지토리(구현체 SimpleJpaRepository 도 @Repository)는 위에서 붙였다
+                if(bean instanceof org.springframework.data.repository.Repository<?, ?>) return bean;
+                Class<?> targetClass = AopUtils.getTargetClass(bean);
+                if(!AnnotatedElementUtils.hasAnnotation(targetClass, Repository.class)) return bean;
+
+                MethodInterceptor interceptor = repositoryMethodInterceptor(targetClass.getSimpleName(), recorder);
+                if(bean instanceof Advised advised && !advised.isFrozen()) {
+                    advised.addAdvice(interceptor);
+                    return bean;
+                }
+                ProxyFactory proxyFactory = new ProxyFactory(bean);
+                proxyFactory.setProxyTargetClass(true);
+                proxyFactory.addAdvice(interceptor);
+                return proxyFactory.getProxy(targetClass.getClassLoader());
+            }
+        };
+    }
+
+    private static MethodInterceptor repositoryMethodInterceptor(String repositoryName, ObjectProvider<QueryCountRecorder> recorder) {
+        return invocation -> {
+            QueryCount count = QueryCounter.start();
+            try {
+                return invocation.proceed();
+            } finally {
+                QueryCounter.stop(count);
+                recorder.getObject().record("repository", repositoryName + "." + invocation.getMethod().getName(), count);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,69 @@
+package ex.querydsl.monitor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+//가상 스레드 pinning 진단
+//가상 스레드가 synchronized 블록 안에서 블로킹되면 캐리어(플랫폼) 스레드에서 내려오지 못하고 캐리어를 붙잡는다
+//JDBC 드라이버, 커넥션 풀처럼 synchronized 로 I/O 를 감싼 코드가 대표적이고 캐리어 수(CPU 코어 수)만큼 막히면 전체가 멈춘다
+//JFR 의 jdk.VirtualThreadPinned 이벤트를 애플리케이션 안에서 구독해서 threshold 이상 붙잡힌 경우 스택과 함께 로그를 남긴다
+//  jvm.threads.virtual.pinned : 발생 횟수 (태그 - pinning 이 시작된 첫 애플리케이션/라이브러리 클래스)
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor {
+
+    private static final int STACK_DEPTH = 12;
+
+    private final MeterRegistry meterRegistry;
+    private final Duration threshold;
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry,
+                                       @Value("${virtual-threads.pinning.threshold:20ms}") Duration threshold) {
+        this.meterRegistry = meterRegistry;
+        this.threshold = threshold;
+    }
+
+    @PostConstruct
+    public void start() {
+        stream = new RecordingStream();
+        stream.enable("jdk.VirtualThreadPinned").withThreshold(threshold).withStackTrace();
+        stream.onEvent("jdk.VirtualThreadPinned", this::onPinned);
+        stream.startAsync();
+    }
+
+    @PreDestroy
+    public void stop() {
+        stream.close();
+    }
+
+    private void onPinned(RecordedEvent event) {
+        List<RecordedFrame> frames = event.getStackTrace() != null ? event.getStackTrace().getFrames() : List.of();
+        String origin = frames.stream()
+                .map(frame -> frame.getMethod().getType().getName())
+                .filter(type -> !type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun."))
+                .findFirst()
+                .orElse("unknown");
+
+        meterRegistry.counter("jvm.threads.virtual.pinned", "origin", origin).increment();
+        log.warn("가상 스레드 pinning {}ms ({})\n{}", event.getDuration().toMillis(), origin, frames.stream()
+                .limit(STACK_DEPTH)
+                .map(frame -> "\tat " + frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                        + ":" + frame.getLineNumber())
+                .collect(Collectors.joining("\n")));
+    }
+
+}
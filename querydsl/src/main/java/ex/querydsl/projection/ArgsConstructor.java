@@ -0,0 +1,103 @@
+package ex.querydsl.projection;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+//인자가 있는 생성자 호출
+//LambdaMetafactory 는 Object[] 를 펼쳐서 호출하는 람다를 만들 수 없으므로 인자 개수별 함수형 인터페이스를 둔다
+//DTO 생성자는 대부분 인자가 몇 개 되지 않으므로 8개까지는 람다, 그 이상은 MethodHandle 로 호출한다
+abstract class ArgsConstructor {
+
+    abstract Object newInstance(Object[] args);
+
+    static ArgsConstructor of(MethodHandles.Lookup lookup, Class<?> type, MethodHandle constructor) throws Throwable {
+        int arity = constructor.type().parameterCount();
+        if(arity == 0 || arity > ARITY_TYPES.length) {
+            MethodHandle spreader = constructor.asSpreader(Object[].class, arity)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+            return new ArgsConstructor() {
+                @Override
+                Object newInstance(Object[] args) {
+                    try {
+                        return spreader.invokeExact(args);
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Throwable e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            };
+        }
+
+        Class<?> functionType = ARITY_TYPES[arity - 1];
+        Class<?>[] erased = new Class<?>[arity];
+        Class<?>[] instantiated = new Class<?>[arity];
+        for (int i = 0; i < arity; i++) {
+            erased[i] = Object.class;
+            instantiated[i] = Invokers.wrap(constructor.type().parameterType(i));
+        }
+        Object function = LambdaMetafactory.metafactory(lookup, "apply",
+                MethodType.methodType(functionType),
+                MethodType.methodType(Object.class, erased),
+                constructor,
+                MethodType.methodType(type, instantiated)
+        ).getTarget().invoke();
+
+        return switch (arity) {
+            case 1 -> wrap1((F1) function);
+            case 2 -> wrap2((F2) function);
+            case 3 -> wrap3((F3) function);
+            case 4 -> wrap4((F4) function);
+            case 5 -> wrap5((F5) function);
+            case 6 -> wrap6((F6) function);
+            case 7 -> wrap7((F7) function);
+            default -> wrap8((F8) function);
+        };
+    }
+
+    private static final Class<?>[] ARITY_TYPES = {F1.class, F2.class, F3.class, F4.class, F5.class, F6.class, F7.class, F8.class};
+
+    interface F1 { Object apply(Object a); }
+    interface F2 { Object apply(Object a, Object b); }
+    interface F3 { Object apply(Object a, Object b, Object c); }
+    interface F4 { Object apply(Object a, Object b, Object c, Object d); }
+    interface F5 { Object apply(Object a, Object b, Object c, Object d, Object e); }
+    interface F6 { Object apply(Object a, Object b, Object c, Object d, Object e, Object f); }
+    interface F7 { Object apply(Object a, Object b, Object c, Object d, Object e, Object f, Object g); }
+    interface F8 { Object apply(Object a, Object b, Object c, Object d, Object e, Object f, Object g, Object h); }
+
+    private static ArgsConstructor wrap1(F1 f) {
+        return new ArgsConstructor() { Object newInstance(Object[] a) { return f.apply(a[0]); } };
+    }
+
+    private static ArgsConstructor wrap2(F2 f) {
+        return new ArgsConstructor() { Object newInstance(Object[] a) { return f.apply(a[0], a[1]); } };
+    }
+
+    private static ArgsConstructor wrap3(F3 f) {
+        return new ArgsConstructor() { Object newInstance(Object[] a) { return f.apply(a[0], a[1], a[2]); } };
+    }
+
+    private static ArgsConstructor wrap4(F4 f) {
+        return new ArgsConstructor() { Object newInstance(Object[] a) { return f.apply(a[0], a[1], a[2], a[3]); } };
+    }
+
+    private static ArgsConstructor wrap5(F5 f) {
+        return new ArgsConstructor() { Object newInstance(Object[] a) { return f.apply(a[0], a[1], a[2], a[3], a[4]); } };
+    }
+
+    private static ArgsConstructor wrap6(F6 f) {
+        return new ArgsConstructor() { Object newInstance(Object[] a) { return f.apply(a[0], a[1], a[2], a[3], a[4], a[5]); } };
+    }
+
+    private static ArgsConstructor wrap7(F7 f) {
+        return new ArgsConstructor() { Object newInstance(Object[] a) { return f.apply(a[0], a[1], a[2], a[3], a[4], a[5], a[6]); } };
+    }
+
+    private static ArgsConstructor wrap8(F8 f) {
+        return new ArgsConstructor() { Object newInstance(Object[] a) { return f.apply(a[0], a[1], a[2], a[3], a[4], a[5], a[6], a[7]); } };
+    }
+
+}
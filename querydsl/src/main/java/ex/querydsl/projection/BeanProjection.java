@@ -0,0 +1,58 @@
+package ex.querydsl.projection;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpressionBase;
+import com.querydsl.core.types.Visitor;
+
+import java.util.List;
+import java.util.Objects;
+
+//기본 생성자 + 세터(또는 필드) 방식 프로젝션 - QBean 대체
+class BeanProjection<T> extends FactoryExpressionBase<T> {
+
+    private final List<Expression<?>> args;
+    private final Invokers invokers;
+
+    BeanProjection(Class<? extends T> type, Expression<?>[] args, Invokers invokers) {
+        super(type);
+        this.args = List.of(args);
+        this.invokers = invokers;
+    }
+
+    @Override
+    public List<Expression<?>> getArgs() {
+        return args;
+    }
+
+    //QBean 과 같이 null 값은 세팅하지 않는다(primitive 필드는 기본값 유지)
+    @Override
+    @SuppressWarnings("unchecked")
+    public T newInstance(Object... values) {
+        Object bean = invokers.noArgConstructor.get();
+        for (int i = 0; i < values.length; i++) {
+            if(values[i] != null) {
+                invokers.setters[i].accept(bean, values[i]);
+            }
+        }
+        return (T) bean;
+    }
+
+    @Override
+    public <R, C> R accept(Visitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if(obj == this) return true;
+        return obj instanceof BeanProjection<?> other
+                && getType().equals(other.getType())
+                && args.equals(other.args);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getType(), args);
+    }
+
+}
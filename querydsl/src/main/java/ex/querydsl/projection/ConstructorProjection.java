@@ -0,0 +1,51 @@
+package ex.querydsl.projection;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpressionBase;
+import com.querydsl.core.types.Visitor;
+
+import java.util.List;
+import java.util.Objects;
+
+//생성자 방식 프로젝션 - QConstructor 대체
+class ConstructorProjection<T> extends FactoryExpressionBase<T> {
+
+    private final List<Expression<?>> args;
+    private final Invokers invokers;
+
+    ConstructorProjection(Class<? extends T> type, Expression<?>[] args, Invokers invokers) {
+        super(type);
+        this.args = List.of(args);
+        this.invokers = invokers;
+    }
+
+    @Override
+    public List<Expression<?>> getArgs() {
+        return args;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T newInstance(Object... values) {
+        return (T) invokers.argsConstructor.newInstance(values);
+    }
+
+    @Override
+    public <R, C> R accept(Visitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if(obj == this) return true;
+        return obj instanceof ConstructorProjection<?> other
+                && getType().equals(other.getType())
+                && args.equals(other.args);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getType(), args);
+    }
+
+}
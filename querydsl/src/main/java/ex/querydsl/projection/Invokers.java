@@ -0,0 +1,142 @@
+package ex.querydsl.projection;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+//DTO 타입별로 만들어 두는 호출 람다 묶음
+//LambdaMetafactory 가 만든 람다는 JIT 가 일반 메서드 호출처럼 인라인할 수 있다
+//public 생성자/세터만 대상으로 한다(DTO 는 Lombok 으로 public 세터, 생성자를 만든다)
+final class Invokers {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    //bean, fields
+    final Supplier<Object> noArgConstructor;
+    final BiConsumer<Object, Object>[] setters;
+
+    //constructor
+    final ArgsConstructor argsConstructor;
+
+    private Invokers(Supplier<Object> noArgConstructor, BiConsumer<Object, Object>[] setters, ArgsConstructor argsConstructor) {
+        this.noArgConstructor = noArgConstructor;
+        this.setters = setters;
+        this.argsConstructor = argsConstructor;
+    }
+
+    @SuppressWarnings("unchecked")
+    static Invokers forBean(Class<?> type, List<String> properties, boolean fieldAccess) {
+        try {
+            MethodHandle constructor = LOOKUP.findConstructor(type, MethodType.methodType(void.class));
+            Supplier<Object> noArgConstructor = (Supplier<Object>) LambdaMetafactory.metafactory(LOOKUP, "get",
+                    MethodType.methodType(Supplier.class),
+                    MethodType.methodType(Object.class),
+                    constructor,
+                    MethodType.methodType(type)
+            ).getTarget().invoke();
+
+            BiConsumer<Object, Object>[] setters = new BiConsumer[properties.size()];
+            for (int i = 0; i < setters.length; i++) {
+                Method setter = findSetter(type, properties.get(i));
+                if(setter != null) {
+                    setters[i] = setterLambda(type, setter);
+                } else if(fieldAccess) {
+                    setters[i] = fieldSetter(type, properties.get(i));
+                } else {
+                    throw new IllegalArgumentException(type.getName() + " 에 " + properties.get(i) + " 세터가 없습니다");
+                }
+            }
+            return new Invokers(noArgConstructor, setters, null);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(type.getName() + " 프로젝션을 만들 수 없습니다", e);
+        }
+    }
+
+    static Invokers forConstructor(Class<?> type, List<Class<?>> argTypes) {
+        try {
+            MethodHandle constructor = LOOKUP.unreflectConstructor(findConstructor(type, argTypes));
+            return new Invokers(null, null, ArgsConstructor.of(LOOKUP, type, constructor));
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(type.getName() + " 프로젝션을 만들 수 없습니다", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> setterLambda(Class<?> type, Method setter) throws Throwable {
+        MethodHandle handle = LOOKUP.unreflect(setter);
+        return (BiConsumer<Object, Object>) LambdaMetafactory.metafactory(LOOKUP, "accept",
+                MethodType.methodType(BiConsumer.class),
+                MethodType.methodType(void.class, Object.class, Object.class),
+                handle,
+                MethodType.methodType(void.class, type, wrap(setter.getParameterTypes()[0]))
+        ).getTarget().invoke();
+    }
+
+    //세터가 없는 필드 - 람다로 만들 수 없으므로 MethodHandle 로 대입한다
+    private static BiConsumer<Object, Object> fieldSetter(Class<?> type, String name) throws IllegalAccessException {
+        Field field = findField(type, name);
+        MethodHandle handle = MethodHandles.privateLookupIn(field.getDeclaringClass(), LOOKUP)
+                .unreflectSetter(field)
+                .asType(MethodType.methodType(void.class, Object.class, Object.class));
+        return (bean, value) -> {
+            try {
+                handle.invokeExact(bean, value);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    private static Method findSetter(Class<?> type, String property) {
+        String name = "set" + Character.toUpperCase(property.charAt(0)) + property.substring(1);
+        for (Method method : type.getMethods()) {
+            if(method.getName().equals(name) && method.getParameterCount() == 1 && !Modifier.isStatic(method.getModifiers())) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    private static Field findField(Class<?> type, String name) {
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if(field.getName().equals(name) && !Modifier.isStatic(field.getModifiers())) {
+                    return field;
+                }
+            }
+        }
+        throw new IllegalArgumentException(type.getName() + " 에 " + name + " 필드가 없습니다");
+    }
+
+    private static java.lang.reflect.Constructor<?> findConstructor(Class<?> type, List<Class<?>> argTypes) {
+        for (java.lang.reflect.Constructor<?> constructor : type.getConstructors()) {
+            Class<?>[] parameterTypes = constructor.getParameterTypes();
+            if(parameterTypes.length != argTypes.size()) continue;
+            boolean matches = true;
+            for (int i = 0; i < parameterTypes.length && matches; i++) {
+                matches = wrap(parameterTypes[i]).isAssignableFrom(wrap(argTypes.get(i)));
+            }
+            if(matches) return constructor;
+        }
+        throw new IllegalArgumentException(type.getName() + " 에 " + argTypes + " 타입의 생성자가 없습니다");
+    }
+
+    static Class<?> wrap(Class<?> type) {
+        return type.isPrimitive() ? MethodType.methodType(type).wrap().returnType() : type;
+    }
+
+}
@@ -0,0 +1,41 @@
+package ex.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+//2단계(ids-first) 페이징
+//1. 조건에 맞는 id 만 offset/limit 으로 조회한다 - 인덱스만 읽고 건너뛴 행의 나머지 컬럼이나 조인은 만들지 않는다
+//2. 그 id 들로 실제 행(또는 컬렉션 fetch join 그래프)을 where id in (...) 으로 조회하고 1단계 순서대로 정렬한다
+//컬렉션 fetch join 에 offset/limit 을 걸면 하이버네이트가 전체를 읽어 메모리에서 페이징하지만(HHH000104)
+//2단계 쿼리에는 limit 이 없으므로 페이지 크기만큼의 루트만 읽는다
+final class IdsFirstPaging {
+
+    private IdsFirstPaging() {
+    }
+
+    static <T> List<T> fetch(JPAQuery<Long> idQuery, Pageable pageable,
+                             Function<List<Long>, List<T>> fetchByIds, Function<T, Long> idOf) {
+        List<Long> ids = idQuery
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+        if(ids.isEmpty()) return List.of();
+
+        Map<Long, Integer> positions = new HashMap<>(ids.size() * 2);
+        for (int i = 0; i < ids.size(); i++) {
+            positions.put(ids.get(i), i);
+        }
+
+        //두 쿼리 사이에 삭제된 행은 빠진다
+        return fetchByIds.apply(ids).stream()
+                .sorted(Comparator.comparing(row -> positions.get(idOf.apply(row))))
+                .toList();
+    }
+
+}
@@ -0,0 +1,40 @@
+package ex.querydsl.repository;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.SimpleExpression;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+//여러 값 조건(IN) - 목록이 비어 있으면 조건 없음
+//hibernate.query.in_clause_parameter_padding 으로 IN 목록은 2의 거듭제곱 길이로 채워져서 바인딩된다
+//목록 길이마다 SQL 문자열이 달라지면 하이버네이트 쿼리 플랜 캐시와 H2 쿼리 캐시가 길이별로 따로 쌓이지만
+//채우고 나면 길이가 1, 2, 4, 8, ... 몇 가지뿐이라 같은 플랜을 다시 쓴다
+//목록이 chunkSize 보다 길면 나눠서 OR 로 묶는다 - 한 쿼리는 유지하면서 IN 목록 하나의 길이와 바인딩 개수를 제한한다
+//chunk 크기도 2의 거듭제곱이라 마지막 chunk 를 빼면 채울 필요가 없다
+final class InLists {
+
+    private InLists() {
+    }
+
+    //중복과 null 을 뺀 값을 chunkSize 개씩 나눈다 - 값이 없으면 빈 목록
+    static <T> List<List<T>> chunks(List<T> values, int chunkSize) {
+        if(values == null || values.isEmpty()) return List.of();
+        List<T> distinct = values.stream().filter(Objects::nonNull).distinct().toList();
+        List<List<T>> chunks = new ArrayList<>((distinct.size() + chunkSize - 1) / chunkSize);
+        for (int from = 0; from < distinct.size(); from += chunkSize) {
+            chunks.add(distinct.subList(from, Math.min(from + chunkSize, distinct.size())));
+        }
+        return chunks;
+    }
+
+    static <T> BooleanExpression in(SimpleExpression<T> path, List<T> values, int chunkSize) {
+        BooleanExpression in = null;
+        for (List<T> chunk : chunks(values, chunkSize)) {
+            in = in == null ? path.in(chunk) : in.or(path.in(chunk));
+        }
+        return in;
+    }
+
+}
@@ -0,0 +1,409 @@
+package ex.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import ex.querydsl.entity.Member;
+import ex.querydsl.event.AfterCommitBuffer;
+import ex.querydsl.event.BulkChangedEvent;
+import ex.querydsl.event.MemberChangedEvent;
+import ex.querydsl.event.TeamChangedEvent;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import static ex.querydsl.entity.QMember.member;
+import static ex.querydsl.entity.QTeam.team;
+import static org.springframework.util.StringUtils.hasText;
+
+//팀 / 나이 메모리 인덱스
+//팀 이름, 나이 범위만으로 검색하는 경우 DB 에서 age between 범위를 다시 읽지 않고 count 와 페이지의 회원 id 를 구한다
+//- 팀별(+ 전체) 나이 Fenwick 트리 : 나이 범위의 회원 수를 O(log 나이) 로 계산
+//- 팀별(+ 전체) 나이별 정렬된 long[] id 목록 : (나이, id) 순서로 offset 위치의 id 를 바로 찾는다
+//  DB 로 조회하는 페이지도 같은 (나이, id) 순서로 정렬한다(MemberRepositoryCustomImpl.fetchContent)
+//회원 데이터는 Integer/Long 박싱 없이 primitive 배열로만 보관한다
+//커밋된 MemberChangedEvent 로 갱신하고 시작 시점과 나이/팀을 바꾼 벌크 연산 후에는 DB 에서 다시 만든다
+//다시 만드는 동안 커밋된 변경은 모아 두었다가 새 인덱스에 다시 적용한다 - DB 를 읽은 시점에 따라 이미 반영된 변경일 수 있으므로
+//적용은 멱등이다(이미 있는 id 추가, 없는 id 삭제는 무시)
+//나이가 [0, AGE_LIMIT) 범위를 벗어난 회원이 있으면 인덱스로 답하지 않는다(null 반환 > DB 조회)
+@Component
+public class MemberAgeIndex {
+
+    static final int AGE_LIMIT = 256;
+
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate rebuildTransaction;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private State state = null;
+    //다시 만드는 중에 반영한 이벤트(MemberChangedEvent, TeamChangedEvent) - 다시 만드는 중이 아니면 null
+    private List<Object> changesDuringRebuild = null;
+
+    //다시 만들기는 한 번에 하나씩
+    private final Object rebuildMonitor = new Object();
+
+    private final AfterCommitBuffer<MemberChangedEvent> memberChanges = new AfterCommitBuffer<>(this::applyMemberChanges);
+
+    public MemberAgeIndex(JPAQueryFactory queryFactory, PlatformTransactionManager transactionManager) {
+        this.queryFactory = queryFactory;
+        //커밋 후 이벤트에서도 호출되므로 항상 새 읽기 전용 트랜잭션에서 읽는다
+        this.rebuildTransaction = new TransactionTemplate(transactionManager);
+        this.rebuildTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.rebuildTransaction.setReadOnly(true);
+    }
+
+    //나이 범위(null 인 경계는 끝까지)에 해당하는 회원 수
+    public Long count(String teamName, Integer ageGoe, Integer ageLoe) {
+        lock.readLock().lock();
+        try {
+            List<Bucket> buckets = buckets(teamName);
+            if(buckets == null) return null;
+            int[] range = ageRange(ageGoe, ageLoe);
+            long count = 0;
+            for (Bucket bucket : buckets) {
+                count += bucket.count(range[0], range[1]);
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //(나이, id) 순서로 정렬했을 때 [offset, offset + limit) 위치의 회원 id
+    public long[] memberIds(String teamName, Integer ageGoe, Integer ageLoe, long offset, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Bucket> buckets = buckets(teamName);
+            if(buckets == null) return null;
+            int[] range = ageRange(ageGoe, ageLoe);
+            long[] result = new long[limit];
+            int filled = 0;
+            long skip = offset;
+            for (int age = range[0]; age <= range[1] && filled < limit; age++) {
+                long ageCount = 0;
+                for (Bucket bucket : buckets) {
+                    ageCount += bucket.ids[age].size;
+                }
+                //나이 하나를 통째로 건너뛸 수 있으면 id 를 보지 않는다
+                if(skip >= ageCount) {
+                    skip -= ageCount;
+                    continue;
+                }
+                filled += copyIdsOfAge(buckets, age, (int) skip, result, filled);
+                skip = 0;
+            }
+            return filled == limit ? result : Arrays.copyOf(result, filled);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //회원 변경은 행마다 발생하므로 트랜잭션 단위로 모아서 커밋 후 한 번에 반영한다(AfterCommitBuffer)
+    @EventListener
+    public void onMemberChanged(MemberChangedEvent event) {
+        memberChanges.add(event);
+    }
+
+    private void applyMemberChanges(List<MemberChangedEvent> events) {
+        lock.writeLock().lock();
+        try {
+            if(changesDuringRebuild != null) changesDuringRebuild.addAll(events);
+            if(state == null) return;
+            for (MemberChangedEvent event : events) {
+                state.apply(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTeamChanged(TeamChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if(changesDuringRebuild != null) changesDuringRebuild.add(event);
+            if(state == null) return;
+            state.apply(event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkChanged(BulkChangedEvent event) {
+        if(event.affects(Member.class, "age", "team")) {
+            rebuild();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    //DB 에서 id, 팀 id, 나이만 스트리밍으로 읽어서 새로 만든 뒤 교체한다
+    //id 순서로 읽어야 나이별 id 목록(LongList)에 항상 끝에 붙는다 - 순서가 없으면 삽입마다 배열을 밀어서 전체가 O(n^2)
+    public void rebuild() {
+        rebuild(() -> {
+        });
+    }
+
+    //afterLoad : 테스트용 - DB 를 읽은 뒤 교체하기 전에 실행한다
+    void rebuild(Runnable afterLoad) {
+        synchronized (rebuildMonitor) {
+            lock.writeLock().lock();
+            try {
+                changesDuringRebuild = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            State rebuilt = new State();
+            boolean loaded = false;
+            try {
+                rebuildTransaction.executeWithoutResult(status -> {
+                    for (Tuple row : queryFactory.select(team.id, team.name).from(team).fetch()) {
+                        rebuilt.teamNames.put(row.get(team.id), row.get(team.name));
+                    }
+                    try (Stream<Tuple> rows = queryFactory
+                            .select(member.id, member.team.id, member.age)
+                            .from(member)
+                            .orderBy(member.id.asc())
+                            .setHint(HibernateHints.HINT_FETCH_SIZE, 1000)
+                            .stream()) {
+                        rows.forEach(row -> rebuilt.add(row.get(member.id), row.get(member.team.id), row.get(member.age)));
+                    }
+                });
+                loaded = true;
+                afterLoad.run();
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    //읽는 도중에 커밋된 변경을 다시 적용한다 - 실패했으면 지금 인덱스를 그대로 둔다
+                    if(loaded) {
+                        for (Object event : changesDuringRebuild) {
+                            if(event instanceof MemberChangedEvent memberChanged) rebuilt.apply(memberChanged);
+                            else if(event instanceof TeamChangedEvent teamChanged) rebuilt.apply(teamChanged);
+                        }
+                        state = rebuilt;
+                    }
+                    changesDuringRebuild = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    //팀 이름이 없으면 전체, 있으면 그 이름을 가진 팀들 / 인덱스로 답할 수 없으면 null
+    private List<Bucket> buckets(String teamName) {
+        if(state == null || state.outOfRange.size > 0) return null;
+        if(!hasText(teamName)) return List.of(state.all);
+        List<Bucket> buckets = new ArrayList<>();
+        state.teamNames.forEach((teamId, name) -> {
+            if(teamName.equals(name)) {
+                Bucket bucket = state.teams.get(teamId);
+                if(bucket != null) buckets.add(bucket);
+            }
+        });
+        return buckets;
+    }
+
+    //없는 경계는 인덱스 범위 끝까지(searchByAgeBetween 과 같음)
+    private static int[] ageRange(Integer ageGoe, Integer ageLoe) {
+        return new int[]{ageGoe == null ? 0 : Math.max(ageGoe, 0), ageLoe == null ? AGE_LIMIT - 1 : Math.min(ageLoe, AGE_LIMIT - 1)};
+    }
+
+    //나이 age 의 id 를 (id 순서로) skip 개 건너뛰고 result[from] 부터 채운다 - 채운 개수
+    //인덱스의 배열을 복사하지 않고 바로 읽는다 - 같은 이름의 팀이 여럿이면 각 팀의 정렬된 목록을 병합하면서 채운다
+    private static int copyIdsOfAge(List<Bucket> buckets, int age, int skip, long[] result, int from) {
+        if(buckets.size() == 1) {
+            LongList ids = buckets.get(0).ids[age];
+            int n = Math.min(ids.size - skip, result.length - from);
+            System.arraycopy(ids.values, skip, result, from, n);
+            return n;
+        }
+
+        LongList[] lists = new LongList[buckets.size()];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = buckets.get(i).ids[age];
+        }
+        int[] cursors = cursorsAt(lists, skip);
+        int filled = 0;
+        while (from + filled < result.length) {
+            int next = -1;
+            for (int i = 0; i < lists.length; i++) {
+                if(cursors[i] < lists[i].size && (next < 0 || lists[i].values[cursors[i]] < lists[next].values[cursors[next]])) {
+                    next = i;
+                }
+            }
+            if(next < 0) break;
+            result[from + filled++] = lists[next].values[cursors[next]++];
+        }
+        return filled;
+    }
+
+    //정렬된 목록들을 합친 순서에서 skip 번째 원소의 각 목록 내 위치
+    //skip 번째 원소의 값 v 를 값 범위에 대한 이분 탐색으로 찾는다 - 목록마다 v 보다 작은 원소 수가 시작 위치
+    //한 회원은 한 팀에만 속하므로 목록끼리 같은 id 는 없다
+    private static int[] cursorsAt(LongList[] lists, int skip) {
+        long low = Long.MAX_VALUE;
+        long high = Long.MIN_VALUE;
+        for (LongList list : lists) {
+            if(list.size == 0) continue;
+            low = Math.min(low, list.values[0]);
+            high = Math.max(high, list.values[list.size - 1]);
+        }
+        int[] cursors = new int[lists.length];
+        if(low > high) return cursors;
+        //v 이하인 원소 수가 skip 보다 큰 가장 작은 v
+        while (low < high) {
+            long mid = low + (high - low) / 2;
+            long countLessOrEqual = 0;
+            for (LongList list : lists) {
+                countLessOrEqual += list.lowerBound(mid + 1);
+            }
+            if(countLessOrEqual > skip) high = mid;
+            else low = mid + 1;
+        }
+        for (int i = 0; i < lists.length; i++) {
+            cursors[i] = lists[i].lowerBound(low);
+        }
+        return cursors;
+    }
+
+    private static class State {
+
+        //팀은 회원보다 훨씬 적으므로 팀 단위 맵은 일반 컬렉션을 사용한다
+        final Map<Long, String> teamNames = new HashMap<>();
+        final Map<Long, Bucket> teams = new HashMap<>();
+        final Bucket all = new Bucket();
+        //범위를 벗어난 나이의 회원 - 같은 변경을 두 번 적용해도 되도록 개수 대신 id 를 둔다
+        final LongList outOfRange = new LongList();
+
+        void apply(MemberChangedEvent event) {
+            if(event.getOldAge() != null) {
+                remove(event.getMemberId(), event.getOldTeamId(), event.getOldAge());
+            }
+            if(event.getAge() != null) {
+                add(event.getMemberId(), event.getTeamId(), event.getAge());
+            }
+        }
+
+        void apply(TeamChangedEvent event) {
+            if(event.getType() == TeamChangedEvent.Type.REMOVED) {
+                teamNames.remove(event.getTeamId());
+            } else {
+                teamNames.put(event.getTeamId(), event.getName());
+            }
+        }
+
+        void add(long memberId, Long teamId, int age) {
+            if(age < 0 || age >= AGE_LIMIT) {
+                outOfRange.insert(memberId);
+                return;
+            }
+            all.add(age, memberId);
+            if(teamId != null) teams.computeIfAbsent(teamId, id -> new Bucket()).add(age, memberId);
+        }
+
+        void remove(long memberId, Long teamId, int age) {
+            if(age < 0 || age >= AGE_LIMIT) {
+                outOfRange.delete(memberId);
+                return;
+            }
+            all.remove(age, memberId);
+            Bucket bucket = teamId != null ? teams.get(teamId) : null;
+            if(bucket != null) bucket.remove(age, memberId);
+        }
+
+    }
+
+    //나이별 회원 수 Fenwick 트리 + 나이별 정렬된 id 목록
+    private static class Bucket {
+
+        final long[] fenwick = new long[AGE_LIMIT + 1];
+        final LongList[] ids = new LongList[AGE_LIMIT];
+
+        Bucket() {
+            for (int age = 0; age < AGE_LIMIT; age++) {
+                ids[age] = new LongList();
+            }
+        }
+
+        void add(int age, long memberId) {
+            if(ids[age].insert(memberId)) update(age, 1);
+        }
+
+        void remove(int age, long memberId) {
+            if(ids[age].delete(memberId)) update(age, -1);
+        }
+
+        long count(int fromAge, int toAge) {
+            if(fromAge > toAge) return 0;
+            return prefix(toAge) - (fromAge > 0 ? prefix(fromAge - 1) : 0);
+        }
+
+        private void update(int age, long delta) {
+            for (int i = age + 1; i <= AGE_LIMIT; i += i & -i) {
+                fenwick[i] += delta;
+            }
+        }
+
+        private long prefix(int age) {
+            long sum = 0;
+            for (int i = age + 1; i > 0; i -= i & -i) {
+                sum += fenwick[i];
+            }
+            return sum;
+        }
+
+    }
+
+    //정렬 상태를 유지하는 long 가변 배열 - 중복 id 는 넣지 않는다
+    private static class LongList {
+
+        long[] values = new long[4];
+        int size;
+
+        boolean insert(long value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if(index >= 0) return false;
+            index = -index - 1;
+            if(size == values.length) values = Arrays.copyOf(values, size * 2);
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+            return true;
+        }
+
+        boolean delete(long value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if(index < 0) return false;
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        //value 보다 작은 원소 수
+        int lowerBound(long value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            return index >= 0 ? index : -index - 1;
+        }
+
+    }
+
+}
@@ -0,0 +1,92 @@
+package ex.querydsl.repository;
+
+import ex.querydsl.dto.BulkLoadResult;
+import ex.querydsl.dto.MemberSpec;
+import ex.querydsl.entity.Member;
+import ex.querydsl.entity.Team;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+//대량 회원 등록
+//IDENTITY 전략은 insert 를 실행해야 id 를 알 수 있어서 하이버네이트가 insert 를 배치로 묶을 수 없다
+//시퀀스(pooled-lo) 전략은 id 를 allocationSize 만큼 미리 받아 두므로 insert 를 JDBC 배치로 모아서 보낸다
+//- chunkSize 건마다 flush + clear : 영속성 컨텍스트가 계속 커지지 않도록(1차 캐시, 스냅샷)
+//- chunk 마다 트랜잭션 커밋 : 락과 undo 로그가 한없이 커지지 않도록(호출한 쪽에 트랜잭션이 있으면 거기에 참여)
+//배치 크기, insert 정렬은 application.yml 의 hibernate.jdbc.batch_size, order_inserts 설정을 따른다
+@Component
+public class MemberBulkLoader {
+
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public MemberBulkLoader(EntityManager em,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${member.bulk.chunk-size:1000}") int chunkSize) {
+        this.em = em;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    public BulkLoadResult load(Stream<MemberSpec> specs) {
+        long start = System.nanoTime();
+        long rows = 0;
+        Map<String, Long> teamIds = transactionTemplate.execute(status -> existingTeamIds());
+
+        try (specs) {
+            Iterator<MemberSpec> iterator = specs.iterator();
+            while (iterator.hasNext()) {
+                rows += transactionTemplate.execute(status -> loadChunk(iterator, teamIds));
+            }
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return new BulkLoadResult(rows, elapsedMillis);
+    }
+
+    private int loadChunk(Iterator<MemberSpec> iterator, Map<String, Long> teamIds) {
+        //chunk 안에서만 팀 엔티티를 재사용한다 - clear 이후에는 준영속 상태가 되므로 다음 chunk 에서 다시 조회
+        Map<String, Team> teams = new HashMap<>();
+        int count = 0;
+        while (count < chunkSize && iterator.hasNext()) {
+            MemberSpec spec = iterator.next();
+            Team team = spec.getTeamName() != null
+                    ? teams.computeIfAbsent(spec.getTeamName(), name -> findOrCreateTeam(name, teamIds))
+                    : null;
+            em.persist(new Member(spec.getUsername(), spec.getAge(), team));
+            count++;
+        }
+        em.flush();
+        em.clear();
+        return count;
+    }
+
+    //이미 있는 팀은 새로 만들지 않고 그 팀에 등록한다 - 이름이 같은 팀이 여럿이면 먼저 만든 팀
+    private Map<String, Long> existingTeamIds() {
+        Map<String, Long> teamIds = new HashMap<>();
+        em.createQuery("select t.name, t.id from Team t where t.name is not null order by t.id", Object[].class)
+                .getResultStream()
+                .forEach(row -> teamIds.putIfAbsent((String) row[0], (Long) row[1]));
+        return teamIds;
+    }
+
+    private Team findOrCreateTeam(String name, Map<String, Long> teamIds) {
+        Long teamId = teamIds.get(name);
+        if(teamId != null) {
+            return em.find(Team.class, teamId);
+        }
+        Team team = new Team(name);
+        em.persist(team);
+        teamIds.put(name, team.getId());
+        return team;
+    }
+
+}
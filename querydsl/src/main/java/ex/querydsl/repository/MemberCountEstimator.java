@@ -0,0 +1,169 @@
+package ex.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import ex.querydsl.dto.MemberSearch;
+import ex.querydsl.entity.Member;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.CollectionUtils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+
+import static ex.querydsl.entity.QMember.member;
+import static ex.querydsl.entity.QTeam.team;
+import static org.springframework.util.StringUtils.hasText;
+
+//검색 결과 개수 추정(CountMode.ESTIMATED)
+//member 테이블의 통계를 주기적으로 모아 두고 조건별 선택도(selectivity)를 곱해서 개수를 추정한다
+//- 전체 행 수
+//- 나이 히스토그램(나이별 회원 수) : 나이 범위 조건
+//- 팀 히스토그램(팀 이름별 회원 수) : 팀 이름 조건
+//- 이름/정규화 이름의 고유 값 개수 : 이름 일치 조건(값이 고르게 분포한다고 가정)
+//- 정규화 이름 표본(정렬) : 이름 접두어 조건
+//조건끼리는 독립이라고 가정하므로 서로 상관관계가 큰 조건이 겹치면 오차가 커진다
+//통계는 시작 시점과 주기적으로만 다시 모으므로 그 사이의 변경은 반영되지 않는다
+//통계를 처음 모으기 전에는 추정하지 않는다(빈 값) - 요청 스레드에서 전체 테이블 집계를 하지 않도록 호출한 쪽이 직접 센다
+@Component
+@RequiredArgsConstructor
+public class MemberCountEstimator {
+
+    private final JPAQueryFactory queryFactory;
+
+    @Value("${member.count.statistics.sample-size:1000}")
+    private int sampleSize;
+
+    private volatile Statistics statistics;
+
+    public OptionalLong estimate(MemberSearch search) {
+        Statistics stats = statistics;
+        if(stats == null) return OptionalLong.empty();
+        if(stats.total == 0) return OptionalLong.of(0);
+
+        double selectivity = 1.0;
+        if(hasText(search.getUsername())) {
+            selectivity *= 1.0 / Math.max(1, stats.distinctUsernames);
+        }
+        if(hasText(search.getUsernameIgnoreCase())) {
+            selectivity *= 1.0 / Math.max(1, stats.distinctNormalizedUsernames);
+        }
+        if(!CollectionUtils.isEmpty(search.getUsernames())) {
+            long n = search.getUsernames().stream().filter(Objects::nonNull).distinct().count();
+            selectivity *= Math.min(1.0, (double) n / Math.max(1, stats.distinctUsernames));
+        }
+        if(hasText(search.getUsernamePrefix())) {
+            selectivity *= stats.prefixSelectivity(Member.normalizeUsername(search.getUsernamePrefix()));
+        }
+        if(hasText(search.getTeamName())) {
+            selectivity *= stats.teamSelectivity(List.of(search.getTeamName()));
+        }
+        if(!CollectionUtils.isEmpty(search.getTeamNames())) {
+            selectivity *= stats.teamSelectivity(search.getTeamNames());
+        }
+        if(search.getAgeGoe() != null || search.getAgeLoe() != null) {
+            selectivity *= stats.ageSelectivity(search.getAgeGoe(), search.getAgeLoe());
+        }
+        if(!CollectionUtils.isEmpty(search.getMemberIds())) {
+            long n = search.getMemberIds().stream().filter(Objects::nonNull).distinct().count();
+            selectivity *= Math.min(1.0, (double) n / stats.total);
+        }
+        return OptionalLong.of(Math.round(stats.total * selectivity));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void onApplicationReady() {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${member.count.statistics.refresh-interval:PT1M}",
+            initialDelayString = "${member.count.statistics.refresh-interval:PT1M}")
+    @Transactional(readOnly = true)
+    public void refresh() {
+        NavigableMap<Integer, Long> ages = new TreeMap<>();
+        long total = 0;
+        for (Tuple row : queryFactory.select(member.age, member.count()).from(member).groupBy(member.age).fetch()) {
+            Long count = row.get(member.count());
+            ages.put(row.get(member.age), count);
+            total += count;
+        }
+
+        Map<String, Long> teams = new HashMap<>();
+        for (Tuple row : queryFactory.select(team.name, member.count()).from(member).join(member.team, team).groupBy(team.name).fetch()) {
+            teams.put(row.get(team.name), row.get(member.count()));
+        }
+
+        Tuple distinct = queryFactory
+                .select(member.username.countDistinct(), member.usernameNormalized.countDistinct())
+                .from(member)
+                .fetchOne();
+
+        //id 간격으로 표본을 뽑는다 - 정렬이나 랜덤 함수 없이 전체에 고르게 퍼진 표본
+        long stride = Math.max(1, total / Math.max(1, sampleSize));
+        List<String> sample = queryFactory
+                .select(member.usernameNormalized)
+                .from(member)
+                .where(member.usernameNormalized.isNotNull(), stride > 1 ? member.id.mod(stride).eq(0L) : null)
+                .limit(sampleSize)
+                .fetch()
+                .stream()
+                .sorted()
+                .toList();
+
+        statistics = new Statistics(total, ages, teams,
+                distinct.get(member.username.countDistinct()),
+                distinct.get(member.usernameNormalized.countDistinct()),
+                sample);
+    }
+
+    private record Statistics(long total, NavigableMap<Integer, Long> ages, Map<String, Long> teams,
+                              long distinctUsernames, long distinctNormalizedUsernames, List<String> usernameSample) {
+
+        //한쪽 경계만 있으면 그 방향 끝까지
+        double ageSelectivity(Integer ageGoe, Integer ageLoe) {
+            if(ageGoe != null && ageLoe != null && ageGoe > ageLoe) return 0;
+            NavigableMap<Integer, Long> range = ages;
+            if(ageGoe != null) range = range.tailMap(ageGoe, true);
+            if(ageLoe != null) range = range.headMap(ageLoe, true);
+            long count = range.values().stream().mapToLong(Long::longValue).sum();
+            return (double) count / total;
+        }
+
+        double teamSelectivity(List<String> teamNames) {
+            long count = teamNames.stream().filter(Objects::nonNull).distinct()
+                    .mapToLong(name -> teams.getOrDefault(name, 0L))
+                    .sum();
+            return (double) count / total;
+        }
+
+        //표본에서 [prefix, prefix + MAX) 범위에 드는 비율 - 표본에 없으면 한 건으로 본다
+        double prefixSelectivity(String prefix) {
+            if(usernameSample.isEmpty()) return 1.0 / total;
+            int from = insertionPoint(prefix);
+            int to = insertionPoint(prefix + Character.MAX_VALUE);
+            return Math.max((double) (to - from) / usernameSample.size(), 1.0 / total);
+        }
+
+        private int insertionPoint(String key) {
+            int index = Collections.binarySearch(usernameSample, key);
+            if(index < 0) return -index - 1;
+            //같은 값이 여러 개면 첫 번째 위치
+            while (index > 0 && usernameSample.get(index - 1).equals(key)) index--;
+            return index;
+        }
+
+    }
+
+}
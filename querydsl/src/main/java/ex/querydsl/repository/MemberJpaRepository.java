@@ -2,21 +2,36 @@ package ex.querydsl.repository;
 
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.Predicate;
-import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import ex.querydsl.dto.MemberField;
 import ex.querydsl.dto.MemberSearch;
 import ex.querydsl.dto.MemberTeamDto;
 import ex.querydsl.dto.QMemberTeamDto;
 import ex.querydsl.entity.Member;
 import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.CollectionUtils;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static ex.querydsl.entity.QMember.member;
 import static ex.querydsl.entity.QTeam.team;
+import static ex.querydsl.repository.MemberQueries.searchByAgeBetween;
+import static ex.querydsl.repository.MemberQueries.searchByTeamName;
+import static ex.querydsl.repository.MemberQueries.searchByUsername;
+import static ex.querydsl.repository.MemberQueries.searchByUsernameIgnoreCase;
+import static ex.querydsl.repository.MemberQueries.searchByUsernamePrefix;
+import static ex.querydsl.repository.MemberQueries.selectFromMemberTeam;
+import static ex.querydsl.repository.MemberQueries.teamRequired;
 import static org.springframework.util.StringUtils.*;
 
 @Repository
@@ -26,6 +41,10 @@ public class MemberJpaRepository {
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
 
+    //IN 목록 하나에 넣는 최대 값 개수(InLists)
+    @Value("${member.search.in-chunk-size:512}")
+    private int inChunkSize;
+
     public void save(Member member) {
         em.persist(member);
     }
@@ -53,12 +72,19 @@ public class MemberJpaRepository {
         return queryFactory.selectFrom(member).where(member.username.eq(username)).fetch();
     }
 
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> searchV1(MemberSearch search) {
 
         BooleanBuilder builder = new BooleanBuilder();
         if(hasText(search.getUsername())) {
             builder.and(member.username.eq(search.getUsername()));
         }
+        if(hasText(search.getUsernamePrefix())) {
+            builder.and(searchByUsernamePrefix(search.getUsernamePrefix()));
+        }
+        if(hasText(search.getUsernameIgnoreCase())) {
+            builder.and(searchByUsernameIgnoreCase(search.getUsernameIgnoreCase()));
+        }
         if(hasText(search.getTeamName())) {
             builder.and(team.name.eq(search.getTeamName()));
         }
@@ -68,65 +94,87 @@ public class MemberJpaRepository {
         if(search.getAgeLoe() != null) {
             builder.and(member.age.loe(search.getAgeLoe()));
         }
+        if(!CollectionUtils.isEmpty(search.getUsernames())) {
+            builder.and(InLists.in(member.username, search.getUsernames(), inChunkSize));
+        }
+        if(!CollectionUtils.isEmpty(search.getTeamNames())) {
+            builder.and(InLists.in(team.name, search.getTeamNames(), inChunkSize));
+        }
+        if(!CollectionUtils.isEmpty(search.getMemberIds())) {
+            builder.and(InLists.in(member.id, search.getMemberIds(), inChunkSize));
+        }
 
-        return queryFactory
-                .select(
+        return selectFromMemberTeam(
+                        queryFactory,
                         new QMemberTeamDto(
                                 member.id.as("memberId"),
                                 member.username,
                                 member.age,
                                 team.id.as("teamId"),
                                 team.name.as("teamName")
-                        )
+                        ),
+                        teamRequired(search),
+                        true
                 )
-                .from(member)
-                .leftJoin(member.team, team)
                 .where(builder)
                 .fetch();
     }
 
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> searchV2(MemberSearch search) {
-        return queryFactory
-                .select(
-                        new QMemberTeamDto(
-                                member.id.as("memberId"),
-                                member.username,
-                                member.age,
-                                team.id.as("teamId"),
-                                team.name.as("teamName")
-                        )
-                )
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        searchByUsername(search.getUsername()),
-                        searchByTeamName(search.getTeamName()),
-//                        searchByAgeGoe(search.getAgeGoe()),
-//                        searchByAgeLoe(search.getAgeLoe())
-                        searchByAgeBetween(search.getAgeGoe(), search.getAgeLoe())
-                )
-                .fetch();
+        return searchQuery(search).fetch();
     }
 
-    private BooleanExpression searchByUsername(String username) {
-        return hasText(username) ? member.username.eq(username) : null;
-    }
-
-    private BooleanExpression searchByTeamName(String teamName) {
-        return hasText(teamName) ? team.name.eq(teamName) : null;
+    //쿼리 모양 캐시 사용
+    //searchV1, searchV2 는 요청마다 Q 타입 프로젝션과 조건 트리를 만들고 JPQL 로 직렬화한다
+    //조건의 조합은 몇 가지뿐이므로 미리 만들어 둔 JPQL 에 값만 바인딩한다
+    @Transactional(readOnly = true)
+    public List<MemberTeamDto> searchV3(MemberSearch search) {
+        //fields 로 일부 필드만 고르면 모양 캐시의 생성자 프로젝션을 쓸 수 없으므로 Querydsl 로 고른 컬럼만 조회한다
+        if(!MemberTeamProjections.allFields(search)) {
+            return searchQuery(search).fetch();
+        }
+        MemberSearchShape shape = MemberSearchShape.of(search, inChunkSize);
+        return shape.bind(em.createQuery(shape.contentJpql(), MemberTeamDto.class), search, inChunkSize)
+                .getResultList();
     }
 
-    private BooleanExpression searchByAgeGoe(Integer ageGoe) {
-        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    //스트리밍 조회
+    //fetch() 는 결과 전체를 List 로 모은 뒤에 반환하기 때문에 결과가 크면 힙을 그대로 차지한다
+    //stream() 은 forward-only 커서로 fetchSize 만큼씩 읽어오므로 한 번에 메모리에 올라가는 행이 제한된다
+    //커서가 열려 있는 동안 커넥션과 트랜잭션이 유지되어야 하므로 consumer 는 이 메서드 안에서 모두 처리된다
+    @Transactional(readOnly = true)
+    public void streamSearch(MemberSearch search, int fetchSize, Consumer<MemberTeamDto> consumer) {
+        try (Stream<MemberTeamDto> stream = searchQuery(search)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .stream()) {
+            stream.forEach(consumer);
+        }
     }
 
-    private BooleanExpression searchByAgeLoe(Integer ageLoe) {
-        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    //fields 로 고른 필드만 조회한다(MemberTeamProjections)
+    private JPAQuery<MemberTeamDto> searchQuery(MemberSearch search) {
+        Set<MemberField> fields = MemberField.parse(search.getFields());
+        return selectFromMemberTeam(
+                        queryFactory,
+                        MemberTeamProjections.of(fields),
+                        teamRequired(search),
+                        fields.stream().anyMatch(MemberField::isTeamField)
+                )
+                .where(
+                        searchByUsername(search.getUsername()),
+                        searchByUsernamePrefix(search.getUsernamePrefix()),
+                        searchByUsernameIgnoreCase(search.getUsernameIgnoreCase()),
+                        searchByTeamName(search.getTeamName()),
+//                        searchByAgeGoe(search.getAgeGoe()),
+//                        searchByAgeLoe(search.getAgeLoe())
+                        searchByAgeBetween(search.getAgeGoe(), search.getAgeLoe()),
+                        InLists.in(member.username, search.getUsernames(), inChunkSize),
+                        InLists.in(team.name, search.getTeamNames(), inChunkSize),
+                        InLists.in(member.id, search.getMemberIds(), inChunkSize)
+                );
     }
 
-    private BooleanExpression searchByAgeBetween(Integer ageGoe, Integer ageLoe) {
-        if(ageGoe == null || ageLoe == null) return null;
-        return searchByAgeGoe(ageGoe).and(searchByAgeLoe(ageLoe));
-    }
 
 }
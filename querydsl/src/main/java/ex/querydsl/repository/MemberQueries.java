@@ -0,0 +1,71 @@
+package ex.querydsl.repository;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import ex.querydsl.dto.MemberSearch;
+import ex.querydsl.entity.Member;
+import org.springframework.util.CollectionUtils;
+
+import static ex.querydsl.entity.QMember.member;
+import static ex.querydsl.entity.QTeam.team;
+import static org.springframework.util.StringUtils.hasText;
+
+//member + team 검색 조건과 조인
+//MemberRepositoryCustomImpl, MemberJpaRepository 가 같은 조건, 같은 조인 규칙으로 조회하도록 한곳에 둔다
+final class MemberQueries {
+
+    private MemberQueries() {
+    }
+
+    //팀 이름 조건이 있으면 팀이 없는 회원은 어차피 결과에서 빠지므로 inner join 으로 조회한다
+    //outer join 은 DB 가 조인 순서를 바꿀 수 없어서 member 를 전부 읽으면서 team 을 붙여 보게 되지만
+    //inner join 이면 team.name 인덱스로 팀을 먼저 찾고 member(team_id, age) 인덱스로 회원을 찾는다
+    static boolean teamRequired(MemberSearch search) {
+        return hasText(search.getTeamName()) || !CollectionUtils.isEmpty(search.getTeamNames());
+    }
+
+    //팀 조건도 없고 팀 필드도 조회하지 않으면 team 을 조인하지 않는다
+    //member -> team 은 다대일이라 left join 을 빼도 행 수는 같다
+    static <T> JPAQuery<T> selectFromMemberTeam(JPAQueryFactory queryFactory, Expression<T> select,
+                                                boolean teamRequired, boolean teamSelected) {
+        JPAQuery<T> query = queryFactory.select(select).from(member);
+        if(teamRequired) return query.join(member.team, team);
+        return teamSelected ? query.leftJoin(member.team, team) : query;
+    }
+
+    static BooleanExpression searchByUsername(String username) {
+        return hasText(username) ? member.username.eq(username) : null;
+    }
+
+    //정규화 컬럼에 대한 범위 조건 - like 나 lower() 와 달리 항상 인덱스 범위 검색이 된다
+    static BooleanExpression searchByUsernamePrefix(String usernamePrefix) {
+        if(!hasText(usernamePrefix)) return null;
+        String prefix = Member.normalizeUsername(usernamePrefix);
+        return member.usernameNormalized.goe(prefix).and(member.usernameNormalized.lt(prefix + Character.MAX_VALUE));
+    }
+
+    static BooleanExpression searchByUsernameIgnoreCase(String username) {
+        return hasText(username) ? member.usernameNormalized.eq(Member.normalizeUsername(username)) : null;
+    }
+
+    static BooleanExpression searchByTeamName(String teamName) {
+        return hasText(teamName) ? team.name.eq(teamName) : null;
+    }
+
+    static BooleanExpression searchByAgeGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+
+    static BooleanExpression searchByAgeLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+
+    //한쪽 경계만 있으면 그 조건만 적용한다
+    static BooleanExpression searchByAgeBetween(Integer ageGoe, Integer ageLoe) {
+        if(ageGoe == null) return searchByAgeLoe(ageLoe);
+        return searchByAgeGoe(ageGoe).and(searchByAgeLoe(ageLoe));
+    }
+
+}
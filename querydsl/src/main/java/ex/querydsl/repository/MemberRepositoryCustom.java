@@ -1,6 +1,11 @@
 package ex.querydsl.repository;
 
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Predicate;
+import ex.querydsl.dto.CountMode;
+import ex.querydsl.dto.MemberCursor;
 import ex.querydsl.dto.MemberSearch;
+import ex.querydsl.dto.MemberSlice;
 import ex.querydsl.dto.MemberTeamDto;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -13,6 +18,25 @@ public interface MemberRepositoryCustom {
 
     Page<MemberTeamDto> searchPageSimple(MemberSearch search, Pageable pageable);
 
+    //total 계산 방식 지정 - 결과는 CountedPage
+    Page<MemberTeamDto> searchPageSimple(MemberSearch search, Pageable pageable, CountMode countMode);
+
     Page<MemberTeamDto> searchPageComplex(MemberSearch search, Pageable pageable);
 
+    Page<MemberTeamDto> searchPageComplex(MemberSearch search, Pageable pageable, CountMode countMode);
+
+    //여러 검색 조건을 한 번의 쿼리로 조회 - 결과는 조건 순서대로
+    List<List<MemberTeamDto>> searchBatch(List<MemberSearch> searches);
+
+    MemberSlice searchSlice(MemberSearch search, MemberCursor cursor, int size);
+
+    //QuerydslPredicateExecutor.findAll(predicate, pageable) 의 DTO 조회 버전 (member left join team)
+    <T> Page<T> findAll(Predicate predicate, Pageable pageable, FactoryExpression<T> projection);
+
+    long bulkAddAge(MemberSearch search, int delta);
+
+    long bulkChangeTeam(MemberSearch search, Long teamId);
+
+    long bulkDelete(MemberSearch search);
+
 }
@@ -1,27 +1,70 @@
 package ex.querydsl.repository;
 
+import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.QueryResults;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.OrderSpecifier;
 import com.querydsl.core.types.dsl.BooleanExpression;
-import com.querydsl.core.types.dsl.Wildcard;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.core.types.dsl.PathBuilderFactory;
+import com.querydsl.core.types.dsl.SimpleExpression;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.JPAExpressions;
 import com.querydsl.jpa.JPQLQuery;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import ex.querydsl.cache.MemberSearchCache;
+import ex.querydsl.cache.MemberSearchKey;
+import ex.querydsl.cache.SearchCoalescer;
+import ex.querydsl.dto.CountMode;
+import ex.querydsl.dto.CountedPage;
+import ex.querydsl.dto.MemberCursor;
+import ex.querydsl.dto.MemberField;
 import ex.querydsl.dto.MemberSearch;
+import ex.querydsl.dto.MemberSlice;
 import ex.querydsl.dto.MemberTeamDto;
-import ex.querydsl.dto.QMemberTeamDto;
 import ex.querydsl.entity.Member;
+import ex.querydsl.entity.Team;
+import ex.querydsl.event.EntityChangeEventPublisher;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.support.Querydsl;
 import org.springframework.data.jpa.repository.support.QuerydslRepositorySupport;
 import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.CollectionUtils;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 
 import static ex.querydsl.entity.QMember.member;
 import static ex.querydsl.entity.QTeam.team;
+import static ex.querydsl.event.Transactions.inReadWriteTransaction;
+import static ex.querydsl.repository.MemberQueries.searchByAgeBetween;
+import static ex.querydsl.repository.MemberQueries.searchByTeamName;
+import static ex.querydsl.repository.MemberQueries.searchByUsername;
+import static ex.querydsl.repository.MemberQueries.searchByUsernameIgnoreCase;
+import static ex.querydsl.repository.MemberQueries.searchByUsernamePrefix;
+import static ex.querydsl.repository.MemberQueries.teamRequired;
 import static org.springframework.util.StringUtils.hasText;
 
 @RequiredArgsConstructor
@@ -30,6 +73,44 @@ public class MemberRepositoryCustomImpl
         implements MemberRepositoryCustom {
 
     private final JPAQueryFactory queryFactory;
+    private final PageQueryExecutor pageQueryExecutor;
+    private final MemberSearchCache searchCache;
+    private final SearchCoalescer searchCoalescer;
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityChangeEventPublisher entityChangeEventPublisher;
+    private final MemberAgeIndex memberAgeIndex;
+    private final MemberCountEstimator memberCountEstimator;
+    private TransactionTemplate readOnlyTransaction;
+
+    //Pageable 의 정렬 속성을 Querydsl 경로로 바꿀 때 사용 - 별칭이 QMember.member 와 같은 "member"
+    private static final PathBuilder<Member> MEMBER_PATH = new PathBuilderFactory().create(Member.class);
+
+    //CountMode.CAPPED 에서 세는 최대 개수
+    @Value("${member.count.cap:1000}")
+    private long countCap;
+
+    //이 offset 부터는 id 를 먼저 조회하는 2단계 페이징을 사용한다
+    @Value("${member.search.ids-first-offset:1000}")
+    private long idsFirstOffset;
+
+    //IN 목록 하나에 넣는 최대 값 개수 - 2의 거듭제곱
+    @Value("${member.search.in-chunk-size:512}")
+    private int inChunkSize;
+
+    //배치 검색 한 번에 받을 수 있는 최대 조건 수
+    @Value("${member.search.batch.max-size:50}")
+    private int batchMaxSize;
+
+    //벌크 연산을 나눠서 실행하는 id 범위 크기
+    @Value("${member.bulk.update-chunk-size:10000}")
+    private long bulkChunkSize;
+
+    @PostConstruct
+    public void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnlyTransaction.setReadOnly(true);
+    }
 
     //리포지토리 지원 - QuerydslRepositorySupport
     //스프링데이터가 지원하는 페이징을 querydsl 로 편리하게 변환 가능
@@ -41,26 +122,24 @@ public class MemberRepositoryCustomImpl
 //        super(Member.class);
 //    }
 
+    //검색 메서드는 읽기 전용 트랜잭션 - replica 라우팅이 켜져 있으면 replica 에서 실행된다(ReplicaDataSourceConfig)
+    //쓰기 트랜잭션 안에서 호출되면 그 트랜잭션에 참여하므로 primary 에서 방금 쓴 데이터를 그대로 본다
+    //검색 결과 캐시 - 같은 조건(+ 페이지)의 결과는 캐시에서 바로 반환한다
+    //동시에 들어온 같은 검색은 하나만 실행하고 나머지는 그 결과를 기다린다(SearchCoalescer) - 캐시 미스가 몰려도 DB 는 한 번
+    //캐시와 합치기는 트랜잭션 밖에서 거친다(cachedSearch) - 캐시 적중이나 다른 요청의 결과를 기다리는 요청은 트랜잭션을 열지 않는다
     @Override
     public List<MemberTeamDto> search(MemberSearch search) {
-        return queryFactory
-                .select(
-                        new QMemberTeamDto(
-                                member.id.as("memberId"),
-                                member.username,
-                                member.age,
-                                team.id.as("teamId"),
-                                team.name.as("teamName")
-                        )
-                )
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        searchByUsername(search.getUsername()),
-                        searchByTeamName(search.getTeamName()),
-                        searchByAgeBetween(search.getAgeGoe(), search.getAgeLoe())
-                )
-                .fetch();
+        MemberSearchKey key = MemberSearchKey.of("search", search, Pageable.unpaged());
+        return cachedSearch(key, () -> {
+            if(MemberTeamProjections.allFields(search)) {
+                MemberSearchShape shape = MemberSearchShape.of(search, inChunkSize);
+                return shape.bind(em.createQuery(shape.contentJpql(), MemberTeamDto.class), search, inChunkSize)
+                        .getResultList();
+            }
+            return selectMemberTeamDto(MemberField.parse(search.getFields()), teamRequired(search))
+                    .where(searchConditions(search))
+                    .fetch();
+        });
     }
 
 //    public List<MemberTeamDto> searchV2(MemberSearch search) {
@@ -85,26 +164,13 @@ public class MemberRepositoryCustomImpl
     
     @Override
     public Page<MemberTeamDto> searchPageSimple(MemberSearch search, Pageable pageable) {
-        List<MemberTeamDto> content = queryFactory
-                .select(
-                        new QMemberTeamDto(
-                                member.id.as("memberId"),
-                                member.username,
-                                member.age,
-                                team.id.as("teamId"),
-                                team.name.as("teamName")
-                        )
-                )
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        searchByUsername(search.getUsername()),
-                        searchByTeamName(search.getTeamName()),
-                        searchByAgeBetween(search.getAgeGoe(), search.getAgeLoe())
-                )
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetch();
+        return searchPageSimple(search, pageable, CountMode.EXACT);
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageSimple(MemberSearch search, Pageable pageable, CountMode countMode) {
+        //content, count 쿼리를 바로 실행하지 않고 넘겨서 실행 방식(순차/동시)은 PageQueryExecutor 가 결정한다
+        Supplier<List<MemberTeamDto>> content = () -> fetchContent(search, pageable);
 
 //        long count1 = queryFactory
 //                .selectFrom(member)
@@ -115,18 +181,15 @@ public class MemberRepositoryCustomImpl
 //                .from(member)
 //                .fetchOne();
 //
-        Long count3 = queryFactory
-                .select(Wildcard.count) //count(*)
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        searchByUsername(search.getUsername()),
-                        searchByTeamName(search.getTeamName()),
-                        searchByAgeBetween(search.getAgeGoe(), search.getAgeLoe())
-                )
-                .fetchOne();
+        LongSupplier count3 = () -> countByShape(search);
 
-        return new PageImpl<>(content, pageable, count3);
+        MemberSearchKey key = MemberSearchKey.of("pageSimple/" + countMode, search, pageable);
+        return cachedSearch(key, () -> {
+            Page<MemberTeamDto> indexed = searchPageByAgeIndex(search, pageable, content);
+            if(indexed != null) return CountedPage.exact(indexed);
+            if(countMode != CountMode.EXACT) return countedPage(search, pageable, countMode, content.get());
+            return CountedPage.exact(pageQueryExecutor.getPage(content, pageable, count3));
+        });
     }
 
 //    public Page<MemberTeamDto> searchPageSimpleV2(MemberSearch search, Pageable pageable) {
@@ -166,63 +229,484 @@ public class MemberRepositoryCustomImpl
 
     @Override
     public Page<MemberTeamDto> searchPageComplex(MemberSearch search, Pageable pageable) {
-        List<MemberTeamDto> content = queryFactory
-                .select(
-                        new QMemberTeamDto(
-                                member.id.as("memberId"),
-                                member.username,
-                                member.age,
-                                team.id.as("teamId"),
-                                team.name.as("teamName")
-                        )
-                )
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        searchByUsername(search.getUsername()),
-                        searchByTeamName(search.getTeamName()),
-                        searchByAgeBetween(search.getAgeGoe(), search.getAgeLoe())
-                )
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetch();
+        return searchPageComplex(search, pageable, CountMode.EXACT);
+    }
 
-        JPAQuery<Long> countQuery = queryFactory
-                .select(member.count())
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        searchByUsername(search.getUsername()),
-                        searchByTeamName(search.getTeamName()),
-                        searchByAgeBetween(search.getAgeGoe(), search.getAgeLoe())
-                );
+    @Override
+    public Page<MemberTeamDto> searchPageComplex(MemberSearch search, Pageable pageable, CountMode countMode) {
+        MemberSearchKey key = MemberSearchKey.of("pageComplex/" + countMode, search, pageable);
+        return cachedSearch(key, () -> fetchPageComplex(search, pageable, countMode));
+    }
+
+    //캐시 -> 합치기 -> 읽기 전용 트랜잭션 순서
+    //캐시 적중은 합치기를 거치지 않고 캐시 미스만 합친다 - 캐시는 같은 검색의 동시 적재를 막지 않으므로 둘 다 필요하다
+    //트랜잭션은 실제로 조회하는 요청만 연다 - 결과를 기다리는 요청이 트랜잭션(EntityManager, 커넥션)을 붙잡고 있지 않는다
+    //쓰기 트랜잭션 안에서 호출되면 캐시와 합치기를 건너뛰고 그 트랜잭션에 참여한다
+    private <T> T cachedSearch(MemberSearchKey key, Supplier<T> loader) {
+        return searchCache.get(key, () -> searchCoalescer.execute(key, () -> readOnlyTransaction.execute(status -> loader.get())));
+    }
+
+    private Page<MemberTeamDto> fetchPageComplex(MemberSearch search, Pageable pageable, CountMode countMode) {
+        Supplier<List<MemberTeamDto>> contentQuery = () -> fetchContent(search, pageable);
+
+        Page<MemberTeamDto> indexed = searchPageByAgeIndex(search, pageable, contentQuery);
+        if(indexed != null) {
+            return CountedPage.exact(indexed);
+        }
+        List<MemberTeamDto> content = contentQuery.get();
+        if(countMode != CountMode.EXACT) {
+            return countedPage(search, pageable, countMode, content);
+        }
 
         //count 쿼리 생략 LongSupplier - 카운트 쿼리가 필요할 때 날린다
         //페이지 시작이면서 컨텐츠 사이즈가 페이지 사이즈 보다 작을 때
         //마지막 페이지 일 때
+        return CountedPage.exact(PageableExecutionUtils.getPage(content, pageable, () -> countByShape(search)));
+    }
+
+    //count(*) 대신 추정하거나(ESTIMATED) 상한까지만 센다(CAPPED)
+    //조건이 넓으면 count(*) 는 조건에 맞는 행을 전부 세야 해서 content 쿼리(페이지 크기만큼 읽고 멈춘다)보다 느리다
+    //- ESTIMATED : MemberCountEstimator 의 통계로 추정 - 쿼리 없음, 이미 읽은 행 수보다 작게 보고하지 않는다
+    //  통계가 아직 없으면(시작 직후) CAPPED 로 센다
+    //- CAPPED : id 를 cap + 1 건까지만 조회해서 센다 - 넘으면 total = cap, totalCapped = true("cap+")
+    //  cap 은 현재 페이지 뒤에 한 건이 더 있는지 알 수 있도록 offset + pageSize + 1 보다 작지 않게 잡는다
+    //content 만으로 total 을 알 수 있으면 어느 쪽도 하지 않고 EXACT 로 응답한다
+    private Page<MemberTeamDto> countedPage(MemberSearch search, Pageable pageable, CountMode countMode,
+                                            List<MemberTeamDto> content) {
+        CountMode[] used = {CountMode.EXACT};
+        boolean[] capped = {false};
+        Page<MemberTeamDto> page = PageableExecutionUtils.getPage(content, pageable, () -> {
+            used[0] = countMode;
+            if(countMode == CountMode.ESTIMATED) {
+                OptionalLong estimated = memberCountEstimator.estimate(search);
+                if(estimated.isPresent()) {
+                    return Math.max(estimated.getAsLong(), pageable.getOffset() + content.size());
+                }
+                used[0] = CountMode.CAPPED;
+            }
+            long cap = Math.max(countCap, pageable.getOffset() + pageable.getPageSize() + 1);
+            long counted = countByShape(search, cap + 1);
+            capped[0] = counted > cap;
+            return Math.min(counted, cap);
+        });
+        return new CountedPage<>(page.getContent(), pageable, page.getTotalElements(), used[0], capped[0]);
+    }
+
+    //페이지 content 조회
+    //offset 이 member.search.ids-first-offset 이상이면 2단계로 조회한다(IdsFirstPaging)
+    //한 번에 조회하면 DB 가 건너뛸 행까지 member, team 을 조인해서 DTO 행을 만들지만
+    //id 만 조회하면 건너뛸 행은 인덱스에서 id 만 읽고 버린다 - 팀 조건이 없으면 team 조인도 하지 않는다
+    //얕은 페이지는 쿼리 한 번이 더 싸므로 그대로 조회한다
+    //정렬 조건이 없으면 (나이, id) 순서 - 메모리 나이 인덱스로 찾은 페이지(searchPageByAgeIndex)와 같은 순서
+    //정렬 조건이 있으면 그 순서로 정렬하고 같은 값은 id 순서로 정렬한다(pageOrder)
+    private List<MemberTeamDto> fetchContent(MemberSearch search, Pageable pageable) {
+        OrderSpecifier<?>[] order = pageOrder(pageable.getSort());
+        boolean teamSorted = sortsByTeam(pageable.getSort());
+        if(pageable.getOffset() < idsFirstOffset && MemberTeamProjections.allFields(search) && pageable.getSort().isUnsorted()) {
+            MemberSearchShape shape = MemberSearchShape.of(search, inChunkSize);
+            return shape.bind(em.createQuery(shape.pageContentJpql(), MemberTeamDto.class), search, inChunkSize)
+                    .setFirstResult((int) pageable.getOffset())
+                    .setMaxResults(pageable.getPageSize())
+                    .getResultList();
+        }
+        if(pageable.getOffset() < idsFirstOffset) {
+            Set<MemberField> fields = MemberField.parse(search.getFields());
+            return selectFromMemberTeam(MemberTeamProjections.of(fields), teamRequired(search),
+                    teamSorted || fields.stream().anyMatch(MemberField::isTeamField))
+                    .where(searchConditions(search))
+                    .orderBy(order)
+                    .offset(pageable.getOffset())
+                    .limit(pageable.getPageSize())
+                    .fetch();
+        }
+
+        //2단계 결과를 1단계 순서로 맞추려면 id 가 필요하므로 fields 에 없어도 조회한다
+        Set<MemberField> fields = EnumSet.copyOf(MemberField.parse(search.getFields()));
+        fields.add(MemberField.MEMBER_ID);
+        JPAQuery<Long> ids = selectIds(search);
+        if(teamSorted && !teamRequired(search)) {
+            ids.leftJoin(member.team, team);
+        }
+        return IdsFirstPaging.fetch(ids.orderBy(order), pageable,
+                ids -> selectMemberTeamDto(fields, false)
+                        .where(searchIn(member.id, ids))
+                        .fetch(),
+                MemberTeamDto::getMemberId);
+    }
+
+    //count 쿼리는 조회 필드와 관계없이 조건만으로 모양이 정해진다(MemberSearchShape)
+    private long countByShape(MemberSearch search) {
+        MemberSearchShape shape = MemberSearchShape.of(search, inChunkSize);
+        return shape.bind(em.createQuery(shape.countJpql(), Long.class), search, inChunkSize)
+                .getSingleResult();
+    }
+
+    //limit 건까지만 센다
+    private long countByShape(MemberSearch search, long limit) {
+        MemberSearchShape shape = MemberSearchShape.of(search, inChunkSize);
+        return shape.bind(em.createQuery(shape.cappedCountJpql(), Long.class), search, inChunkSize)
+                .setParameter("countLimit", (int) Math.min(limit, Integer.MAX_VALUE))
+                .getSingleResult();
+    }
+
+    //조건에 맞는 회원 id - 팀 조건이 없으면 team 조인 없이 member 인덱스만으로 답할 수 있다
+    private JPAQuery<Long> selectIds(MemberSearch search) {
+        JPAQuery<Long> query = queryFactory.select(member.id).from(member);
+        if(teamRequired(search)) {
+            query.join(member.team, team);
+        }
+        return query.where(searchConditions(search));
+    }
+
+    //배치 검색
+    //화면 하나를 그리려고 팀별, 나이대별로 검색을 수십 번 호출하면 DB 왕복도 수십 번이 된다
+    //조건들을 OR 로 묶어 한 번에 조회한 뒤 각 행이 어떤 조건에 해당하는지 메모리에서 다시 나눈다
+    //- 모든 조건이 팀 이름만 있으면 team.name in (...) 으로 조회하고 inner join 을 쓴다
+    //- 조건이 하나도 없는 검색이 섞여 있으면 전체 회원을 조회하게 되므로 배치 크기를 제한한다
+    @Override
+    @Transactional(readOnly = true)
+    public List<List<MemberTeamDto>> searchBatch(List<MemberSearch> searches) {
+        if(searches.isEmpty()) return List.of();
+        if(searches.size() > batchMaxSize) {
+            throw new IllegalArgumentException("배치 검색은 최대 " + batchMaxSize + "건까지 가능합니다: " + searches.size());
+        }
+
+        boolean teamNameOnly = searches.stream().allMatch(MemberRepositoryCustomImpl::isTeamNameOnly);
+        boolean teamRequired = searches.stream().allMatch(MemberQueries::teamRequired);
+
+        Predicate anyOf;
+        if(teamNameOnly) {
+            anyOf = searchIn(team.name, searches.stream().map(MemberSearch::getTeamName).toList());
+        } else {
+            BooleanBuilder builder = new BooleanBuilder();
+            for (MemberSearch search : searches) {
+                Predicate allOf = ExpressionUtils.allOf(searchConditions(search));
+                if(allOf == null) {
+                    //조건 없는 검색 - 전체 조회
+                    builder = new BooleanBuilder();
+                    break;
+                }
+                builder.or(allOf);
+            }
+            anyOf = builder;
+        }
+
+        List<MemberTeamDto> rows = selectMemberTeamDto(EnumSet.allOf(MemberField.class), teamRequired)
+                .where(anyOf)
+                .orderBy(member.id.asc())
+                .fetch();
+
+        List<List<MemberTeamDto>> results = new ArrayList<>(searches.size());
+        for (int i = 0; i < searches.size(); i++) {
+            results.add(new ArrayList<>());
+        }
+        for (MemberTeamDto row : rows) {
+            for (int i = 0; i < searches.size(); i++) {
+                if(matches(searches.get(i), row)) results.get(i).add(row);
+            }
+        }
+        return results;
+    }
+
+    //키셋(seek) 페이징
+    //offset 은 앞 페이지의 행을 모두 읽고 버리기 때문에 페이지가 깊어질수록 느려진다
+    //마지막으로 읽은 정렬 키보다 큰 행부터 읽으면 페이지 깊이와 상관없이 인덱스에서 바로 시작할 수 있다
+    //count 쿼리 없이 size + 1 건을 조회해서 다음 페이지 존재 여부를 판단한다
+    @Override
+    @Transactional(readOnly = true)
+    public MemberSlice searchSlice(MemberSearch search, MemberCursor cursor, int size) {
+        if(size < 1) {
+            throw new IllegalArgumentException("size 는 1 이상이어야 합니다: " + size);
+        }
+        List<MemberTeamDto> content = selectMemberTeamDto(cursorFields(search, cursor), teamRequired(search))
+                .where(searchConditions(search))
+                .where(seekAfter(cursor))
+                .orderBy(seekOrder(cursor.getSortKey()))
+                .limit(size + 1)
+                .fetch();
+
+        boolean hasNext = content.size() > size;
+        if(hasNext) {
+            content = content.subList(0, size);
+        }
+        String nextCursor = hasNext
+                ? MemberCursor.after(cursor.getSortKey(), content.get(content.size() - 1)).encode()
+                : null;
+
+        return new MemberSlice(content, hasNext, nextCursor);
+    }
+
+    //@QuerydslPredicate 로 바인딩된 조건을 그대로 사용하면서 엔티티 대신 DTO 를 바로 조회한다
+    //엔티티로 조회한 뒤 DTO 로 바꾸면 영속성 컨텍스트에 엔티티와 변경 감지용 스냅샷이 쌓이고
+    //팀 정보를 채우려면 지연 로딩 프록시를 초기화해야 한다(N+1)
+    //웹 바인딩 조건과 정렬은 member 를 루트로 한 경로(member.username, member.team.name)이므로 같은 별칭을 쓴다
+    //프로젝션이나 조건이 team 별칭을 참조할 때만 team 을 left join 한다(TeamReferences)
+    @Override
+    @Transactional(readOnly = true)
+    public <T> Page<T> findAll(Predicate predicate, Pageable pageable, FactoryExpression<T> projection) {
+        JPAQuery<T> query = selectFromMemberTeam(projection, false, TeamReferences.in(projection) || TeamReferences.in(predicate))
+                .where(predicate);
+        List<T> content = new Querydsl(em, MEMBER_PATH).applyPagination(pageable, query).fetch();
+
+        JPAQuery<Long> countQuery = selectFromMemberTeam(member.count(), false, TeamReferences.in(predicate))
+                .where(predicate);
+
         return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchOne);
     }
 
+    //팀 이름, 나이 조건만 있는 검색은 메모리 나이 인덱스(MemberAgeIndex)로 count 를 구한다
+    //정렬 조건이 없으면 페이지에 해당하는 회원 id 도 인덱스에서 (나이, id) 순서로 찾아 id 로만 조회한다
+    //인덱스는 커밋된 데이터만 반영하므로 쓰기 트랜잭션 안에서는 사용하지 않는다
+    //인덱스로 답할 수 없으면 null
+    private Page<MemberTeamDto> searchPageByAgeIndex(MemberSearch search, Pageable pageable,
+                                                     Supplier<List<MemberTeamDto>> contentQuery) {
+        if(hasText(search.getUsername()) || hasText(search.getUsernamePrefix()) || hasText(search.getUsernameIgnoreCase())
+                || hasListCondition(search) || pageable.isUnpaged() || inReadWriteTransaction()) return null;
+
+        Long total = memberAgeIndex.count(search.getTeamName(), search.getAgeGoe(), search.getAgeLoe());
+        if(total == null) return null;
+        if(pageable.getSort().isSorted()) {
+            return new PageImpl<>(contentQuery.get(), pageable, total);
+        }
+
+        long[] ids = memberAgeIndex.memberIds(search.getTeamName(), search.getAgeGoe(), search.getAgeLoe(),
+                pageable.getOffset(), pageable.getPageSize());
+        if(ids == null) return null;
+        if(ids.length == 0) {
+            return new PageImpl<>(List.of(), pageable, total);
+        }
+
+        List<MemberTeamDto> content = selectMemberTeamDto(MemberField.parse(search.getFields()), false)
+                .where(member.id.in(Arrays.stream(ids).boxed().toList()))
+                .orderBy(member.age.asc(), member.id.asc())
+                .fetch();
+
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    //벌크 연산
+    //엔티티를 조회하지 않고 update/delete 쿼리로 바로 처리한다
+    //벌크 연산은 영속성 컨텍스트를 무시하고 실행되기 때문에 호출하는 쪽에서 매번 flush/clear 를 챙겨야 했다
+    //여기서는 chunk 마다 실행 전 flush(쓰기 지연된 변경 반영), 실행 후 clear(변경 전 상태의 엔티티 제거)를 자동으로 한다
+    //대상이 많으면 id 범위 단위로 나눠서 실행한다 - 한 번에 잡는 락과 undo 로그가 chunk 크기로 제한된다
+    @Override
+    public long bulkAddAge(MemberSearch search, int delta) {
+        return executeInChunks(search, Set.of("age"), conditions -> queryFactory
+                .update(member)
+                .set(member.age, member.age.add(delta))
+                .where(conditions)
+                .execute());
+    }
+
+    @Override
+    public long bulkChangeTeam(MemberSearch search, Long teamId) {
+        return executeInChunks(search, Set.of("team"), conditions -> teamId != null
+                ? queryFactory
+                        .update(member)
+                        .set(member.team, em.getReference(Team.class, teamId))
+                        .where(conditions)
+                        .execute()
+                : queryFactory
+                        .update(member)
+                        .setNull(member.team)
+                        .where(conditions)
+                        .execute());
+    }
+
+    @Override
+    public long bulkDelete(MemberSearch search) {
+        return executeInChunks(search, Set.of(), conditions -> queryFactory
+                .delete(member)
+                .where(conditions)
+                .execute());
+    }
+
+    //호출한 쪽에 트랜잭션이 없으면 chunk 마다 트랜잭션을 커밋하고 있으면 거기에 참여한다
+    //캐시 무효화(EntityChangesCommittedEvent)는 chunk 커밋마다, 파생 데이터를 다시 만드는 BulkChangedEvent 는 마지막에 한 번
+    //chunk 트랜잭션을 직접 열었으면 영속성 컨텍스트를 비우고 호출한 쪽 트랜잭션에 참여했으면 Member 만 분리한다
+    //(호출한 쪽이 들고 있는 다른 엔티티의 변경 감지가 끊기지 않도록)
+    //attributes : 바꾸는 속성 - 비어 있으면 삭제
+    private long executeInChunks(MemberSearch search, Set<String> attributes, Function<Predicate[], Long> operation) {
+        Predicate[] conditions = bulkConditions(search);
+
+        Tuple bounds = queryFactory
+                .select(member.id.min(), member.id.max())
+                .from(member)
+                .where(conditions)
+                .fetchOne();
+        Long minId = bounds.get(member.id.min());
+        Long maxId = bounds.get(member.id.max());
+        if(minId == null) return 0;
+
+        long affected = 0;
+        try {
+            for (long from = minId; from <= maxId; from += bulkChunkSize) {
+                Predicate[] chunkConditions = withIdRange(conditions, from, Math.min(from + bulkChunkSize - 1, maxId));
+                affected += transactionTemplate.execute(status -> {
+                    em.flush();
+                    long count = operation.apply(chunkConditions);
+                    if(status.isNewTransaction()) em.clear();
+                    else detachMembers();
+                    entityChangeEventPublisher.markChanged(Member.class);
+                    return count;
+                });
+            }
+        } finally {
+            //중간에 실패해도 이미 커밋된 chunk 가 있을 수 있다
+            if(affected > 0) {
+                entityChangeEventPublisher.bulkChanged(Member.class, attributes);
+            }
+        }
+        return affected;
+    }
+
+    private void detachMembers() {
+        List<Object> members = em.unwrap(SessionImplementor.class).getPersistenceContextInternal()
+                .getEntitiesByKey().values().stream()
+                .filter(Member.class::isInstance)
+                .toList();
+        members.forEach(em::detach);
+    }
+
+    //update/delete 쿼리에는 join 을 쓸 수 없으므로 팀 이름 조건은 서브쿼리로 바꾼다
+    private Predicate[] bulkConditions(MemberSearch search) {
+        return new Predicate[]{
+                searchByUsername(search.getUsername()),
+                searchByUsernamePrefix(search.getUsernamePrefix()),
+                searchByUsernameIgnoreCase(search.getUsernameIgnoreCase()),
+                teamRequired(search)
+                        ? member.team.id.in(JPAExpressions.select(team.id).from(team)
+                                .where(searchByTeamName(search.getTeamName()), searchIn(team.name, search.getTeamNames())))
+                        : null,
+                searchByAgeBetween(search.getAgeGoe(), search.getAgeLoe()),
+                searchIn(member.username, search.getUsernames()),
+                searchIn(member.id, search.getMemberIds())
+        };
+    }
+
+    private <T> JPAQuery<T> selectFromMemberTeam(Expression<T> select, boolean teamRequired, boolean teamSelected) {
+        return MemberQueries.selectFromMemberTeam(queryFactory, select, teamRequired, teamSelected);
+    }
+
+    private JPAQuery<MemberTeamDto> selectMemberTeamDto(Set<MemberField> fields, boolean teamRequired) {
+        return selectFromMemberTeam(MemberTeamProjections.of(fields), teamRequired, fields.stream().anyMatch(MemberField::isTeamField));
+    }
+
+    //다음 커서를 만들 수 있도록 id 와 정렬 기준 필드는 항상 조회한다
+    private static Set<MemberField> cursorFields(MemberSearch search, MemberCursor cursor) {
+        Set<MemberField> fields = EnumSet.copyOf(MemberField.parse(search.getFields()));
+        fields.add(MemberField.MEMBER_ID);
+        switch (cursor.getSortKey()) {
+            case AGE -> fields.add(MemberField.AGE);
+            case USERNAME -> fields.add(MemberField.USERNAME);
+            default -> {
+            }
+        }
+        return fields;
+    }
+
+    private Predicate[] searchConditions(MemberSearch search) {
+        return new Predicate[]{
+                searchByUsername(search.getUsername()),
+                searchByUsernamePrefix(search.getUsernamePrefix()),
+                searchByUsernameIgnoreCase(search.getUsernameIgnoreCase()),
+                searchByTeamName(search.getTeamName()),
+                searchByAgeBetween(search.getAgeGoe(), search.getAgeLoe()),
+                searchIn(member.username, search.getUsernames()),
+                searchIn(team.name, search.getTeamNames()),
+                searchIn(member.id, search.getMemberIds())
+        };
+    }
+
+    private static boolean isTeamNameOnly(MemberSearch search) {
+        return hasText(search.getTeamName())
+                && !hasText(search.getUsername())
+                && !hasText(search.getUsernamePrefix())
+                && !hasText(search.getUsernameIgnoreCase())
+                && search.getAgeGoe() == null && search.getAgeLoe() == null
+                && !hasListCondition(search);
+    }
+
+    private static boolean hasListCondition(MemberSearch search) {
+        return !CollectionUtils.isEmpty(search.getUsernames())
+                || !CollectionUtils.isEmpty(search.getTeamNames())
+                || !CollectionUtils.isEmpty(search.getMemberIds());
+    }
+
+    //searchConditions 와 같은 조건을 조회한 행에 적용한다
+    private static boolean matches(MemberSearch search, MemberTeamDto row) {
+        if(hasText(search.getUsername()) && !search.getUsername().equals(row.getUsername())) return false;
+        String normalized = Member.normalizeUsername(row.getUsername());
+        if(hasText(search.getUsernamePrefix())
+                && (normalized == null || !normalized.startsWith(Member.normalizeUsername(search.getUsernamePrefix())))) return false;
+        if(hasText(search.getUsernameIgnoreCase())
+                && !Member.normalizeUsername(search.getUsernameIgnoreCase()).equals(normalized)) return false;
+        if(hasText(search.getTeamName()) && !search.getTeamName().equals(row.getTeamName())) return false;
+        if(search.getAgeGoe() != null && row.getAge() < search.getAgeGoe()) return false;
+        if(search.getAgeLoe() != null && row.getAge() > search.getAgeLoe()) return false;
+        if(!CollectionUtils.isEmpty(search.getUsernames()) && !search.getUsernames().contains(row.getUsername())) return false;
+        if(!CollectionUtils.isEmpty(search.getTeamNames()) && !search.getTeamNames().contains(row.getTeamName())) return false;
+        if(!CollectionUtils.isEmpty(search.getMemberIds()) && !search.getMemberIds().contains(row.getMemberId())) return false;
+        return true;
+    }
+
+    private static Predicate[] withIdRange(Predicate[] conditions, long from, long to) {
+        Predicate[] chunkConditions = Arrays.copyOf(conditions, conditions.length + 1);
+        chunkConditions[conditions.length] = member.id.between(from, to);
+        return chunkConditions;
+    }
+
+
 
-    private BooleanExpression searchByUsername(String username) {
-        return hasText(username) ? member.username.eq(username) : null;
+    //여러 값 조건 - 나눠 묶는 방식은 InLists 참고
+    private <T> BooleanExpression searchIn(SimpleExpression<T> path, List<T> values) {
+        return InLists.in(path, values, inChunkSize);
     }
 
-    private BooleanExpression searchByTeamName(String teamName) {
-        return hasText(teamName) ? team.name.eq(teamName) : null;
+    //정렬 키가 같은 행이 여러 건일 수 있으므로 (정렬 키, id) 복합 키로 비교한다
+    private BooleanExpression seekAfter(MemberCursor cursor) {
+        if(cursor.isFirst()) return null;
+        return switch (cursor.getSortKey()) {
+            case ID -> member.id.gt(cursor.getLastId());
+            case AGE -> member.age.gt(cursor.getLastAge())
+                    .or(member.age.eq(cursor.getLastAge()).and(member.id.gt(cursor.getLastId())));
+            case USERNAME -> member.username.gt(cursor.getLastUsername())
+                    .or(member.username.eq(cursor.getLastUsername()).and(member.id.gt(cursor.getLastId())));
+        };
     }
 
-    private BooleanExpression searchByAgeGoe(Integer ageGoe) {
-        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    //페이지 정렬 - 프로퍼티는 MemberTeamDto 필드 이름(memberId, username, age, teamId, teamName)
+    //페이지 경계가 매번 같도록 마지막에 id 를 붙인다
+    private static OrderSpecifier<?>[] pageOrder(Sort sort) {
+        if(sort.isUnsorted()) return new OrderSpecifier<?>[]{member.age.asc(), member.id.asc()};
+        List<OrderSpecifier<?>> orders = new ArrayList<>();
+        boolean byId = false;
+        for (Sort.Order order : sort) {
+            MemberField field = MemberField.of(order.getProperty());
+            ComparableExpressionBase<?> path = switch (field) {
+                case MEMBER_ID -> member.id;
+                case USERNAME -> member.username;
+                case AGE -> member.age;
+                case TEAM_ID -> team.id;
+                case TEAM_NAME -> team.name;
+            };
+            orders.add(order.isAscending() ? path.asc() : path.desc());
+            byId |= field == MemberField.MEMBER_ID;
+        }
+        if(!byId) orders.add(member.id.asc());
+        return orders.toArray(OrderSpecifier<?>[]::new);
     }
 
-    private BooleanExpression searchByAgeLoe(Integer ageLoe) {
-        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    private static boolean sortsByTeam(Sort sort) {
+        return sort.stream().anyMatch(order -> MemberField.of(order.getProperty()).isTeamField());
     }
 
-    private BooleanExpression searchByAgeBetween(Integer ageGoe, Integer ageLoe) {
-        if(ageGoe == null || ageLoe == null) return null;
-        return searchByAgeGoe(ageGoe).and(searchByAgeLoe(ageLoe));
+    private OrderSpecifier<?>[] seekOrder(MemberCursor.SortKey sortKey) {
+        return switch (sortKey) {
+            case ID -> new OrderSpecifier<?>[]{member.id.asc()};
+            case AGE -> new OrderSpecifier<?>[]{member.age.asc(), member.id.asc()};
+            case USERNAME -> new OrderSpecifier<?>[]{member.username.asc(), member.id.asc()};
+        };
     }
 
 
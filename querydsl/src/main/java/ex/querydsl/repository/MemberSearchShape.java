@@ -0,0 +1,166 @@
+package ex.querydsl.repository;
+
+import ex.querydsl.dto.MemberSearch;
+import ex.querydsl.entity.Member;
+import jakarta.persistence.Query;
+
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.springframework.util.StringUtils.hasText;
+
+//MemberSearch 쿼리 모양(shape) 캐시
+//조건 값이 아니라 "어떤 조건이 있는지"에 따라 쿼리 문자열이 결정되므로 모양별로 JPQL 을 한 번만 만들어 두고
+//요청마다 파라미터 값만 바인딩한다
+//매번 Q 타입 프로젝션/BooleanExpression 트리를 만들고 JPQL 로 직렬화하는 비용이 사라지고
+//같은 문자열이 반복되므로 하이버네이트 쿼리 플랜 캐시도 항상 적중한다
+//전체 필드를 조회하는 검색(searchV3, search, searchPageSimple/Complex 의 content)과 count 가 사용한다
+final class MemberSearchShape {
+
+    private static final int USERNAME = 1;
+    private static final int TEAM_NAME = 1 << 1;
+    private static final int AGE_GOE = 1 << 2;
+    private static final int AGE_LOE = 1 << 3;
+    private static final int USERNAME_PREFIX = 1 << 4;
+    private static final int USERNAME_IGNORE_CASE = 1 << 5;
+    //여러 값 조건은 chunk 마다 컬렉션 파라미터 하나로 바인딩한다(InLists) - chunk 가 하나면 배열에 미리 만든 모양을 쓰고
+    //chunk 가 여러 개인 긴 목록은 (조건 조합, chunk 개수) 별로 처음 쓸 때 만들어 둔다
+    private static final int USERNAMES = 1 << 6;
+    private static final int TEAM_NAMES = 1 << 7;
+    private static final int MEMBER_IDS = 1 << 8;
+
+    private static final MemberSearchShape[] SHAPES = new MemberSearchShape[1 << 9];
+
+    private static final ConcurrentMap<List<Integer>, MemberSearchShape> CHUNKED_SHAPES = new ConcurrentHashMap<>();
+
+    static {
+        for (int mask = 0; mask < SHAPES.length; mask++) {
+            SHAPES[mask] = new MemberSearchShape(mask, chunkCount(mask, USERNAMES), chunkCount(mask, TEAM_NAMES), chunkCount(mask, MEMBER_IDS));
+        }
+    }
+
+    private final int mask;
+    private final String contentJpql;
+    private final String pageContentJpql;
+    private final String countJpql;
+    private final String cappedCountJpql;
+
+    private MemberSearchShape(int mask, int usernameChunks, int teamNameChunks, int memberIdChunks) {
+        this.mask = mask;
+        String where = where(mask, usernameChunks, teamNameChunks, memberIdChunks);
+        //팀 이름 조건이 있으면 inner join - 조인 순서를 바꿔 team.name 인덱스부터 탈 수 있다
+        boolean teamRequired = (mask & (TEAM_NAME | TEAM_NAMES)) != 0;
+        this.contentJpql = "select new ex.querydsl.dto.MemberTeamDto(m.id, m.username, m.age, t.id, t.name)"
+                + (teamRequired ? " from Member m join m.team t" : " from Member m left join m.team t")
+                + where;
+        //페이지는 (나이, id) 순서 - 메모리 나이 인덱스(MemberAgeIndex)로 찾은 페이지와 같은 순서
+        this.pageContentJpql = contentJpql + " order by m.age, m.id";
+        //팀 조건이 없으면 조인 없이 센다 - member -> team 은 다대일이라 행 수가 같다
+        this.countJpql = "select count(m)"
+                + (teamRequired ? " from Member m join m.team t" : " from Member m")
+                + where;
+        //최대 :countLimit 건까지만 센다(CountMode.CAPPED) - 행을 가져오지 않고 DB 에서 limit 을 건 서브쿼리를 센다
+        this.cappedCountJpql = "select count(*) from (select m.id as id"
+                + (teamRequired ? " from Member m join m.team t" : " from Member m")
+                + where
+                + " limit :countLimit) c";
+    }
+
+    static MemberSearchShape of(MemberSearch search, int chunkSize) {
+        int mask = 0;
+        if(hasText(search.getUsername())) mask |= USERNAME;
+        if(hasText(search.getTeamName())) mask |= TEAM_NAME;
+        if(search.getAgeGoe() != null) mask |= AGE_GOE;
+        if(search.getAgeLoe() != null) mask |= AGE_LOE;
+        if(hasText(search.getUsernamePrefix())) mask |= USERNAME_PREFIX;
+        if(hasText(search.getUsernameIgnoreCase())) mask |= USERNAME_IGNORE_CASE;
+        int usernameChunks = InLists.chunks(search.getUsernames(), chunkSize).size();
+        int teamNameChunks = InLists.chunks(search.getTeamNames(), chunkSize).size();
+        int memberIdChunks = InLists.chunks(search.getMemberIds(), chunkSize).size();
+        if(usernameChunks > 0) mask |= USERNAMES;
+        if(teamNameChunks > 0) mask |= TEAM_NAMES;
+        if(memberIdChunks > 0) mask |= MEMBER_IDS;
+        if(usernameChunks <= 1 && teamNameChunks <= 1 && memberIdChunks <= 1) {
+            return SHAPES[mask];
+        }
+        int shapeMask = mask;
+        return CHUNKED_SHAPES.computeIfAbsent(List.of(mask, usernameChunks, teamNameChunks, memberIdChunks),
+                key -> new MemberSearchShape(shapeMask, usernameChunks, teamNameChunks, memberIdChunks));
+    }
+
+    String contentJpql() {
+        return contentJpql;
+    }
+
+    String pageContentJpql() {
+        return pageContentJpql;
+    }
+
+    String countJpql() {
+        return countJpql;
+    }
+
+    String cappedCountJpql() {
+        return cappedCountJpql;
+    }
+
+    //of() 와 같은 chunkSize 로 바인딩해야 한다
+    <Q extends Query> Q bind(Q query, MemberSearch search, int chunkSize) {
+        if((mask & USERNAME) != 0) query.setParameter("username", search.getUsername());
+        if((mask & TEAM_NAME) != 0) query.setParameter("teamName", search.getTeamName());
+        if((mask & AGE_GOE) != 0) query.setParameter("ageGoe", search.getAgeGoe());
+        if((mask & AGE_LOE) != 0) query.setParameter("ageLoe", search.getAgeLoe());
+        if((mask & USERNAME_PREFIX) != 0) {
+            String prefix = Member.normalizeUsername(search.getUsernamePrefix());
+            query.setParameter("prefixFrom", prefix);
+            query.setParameter("prefixTo", prefix + Character.MAX_VALUE);
+        }
+        if((mask & USERNAME_IGNORE_CASE) != 0) {
+            query.setParameter("usernameNormalized", Member.normalizeUsername(search.getUsernameIgnoreCase()));
+        }
+        if((mask & USERNAMES) != 0) bindChunks(query, "usernames", InLists.chunks(search.getUsernames(), chunkSize));
+        if((mask & TEAM_NAMES) != 0) bindChunks(query, "teamNames", InLists.chunks(search.getTeamNames(), chunkSize));
+        if((mask & MEMBER_IDS) != 0) bindChunks(query, "memberIds", InLists.chunks(search.getMemberIds(), chunkSize));
+        return query;
+    }
+
+    private static String where(int mask, int usernameChunks, int teamNameChunks, int memberIdChunks) {
+        StringBuilder where = new StringBuilder();
+        if((mask & USERNAME) != 0) appendCondition(where, "m.username = :username");
+        if((mask & TEAM_NAME) != 0) appendCondition(where, "t.name = :teamName");
+        if((mask & AGE_GOE) != 0) appendCondition(where, "m.age >= :ageGoe");
+        if((mask & AGE_LOE) != 0) appendCondition(where, "m.age <= :ageLoe");
+        if((mask & USERNAME_PREFIX) != 0) appendCondition(where, "m.usernameNormalized >= :prefixFrom and m.usernameNormalized < :prefixTo");
+        if((mask & USERNAME_IGNORE_CASE) != 0) appendCondition(where, "m.usernameNormalized = :usernameNormalized");
+        if((mask & USERNAMES) != 0) appendCondition(where, inChunks("m.username", "usernames", usernameChunks));
+        if((mask & TEAM_NAMES) != 0) appendCondition(where, inChunks("t.name", "teamNames", teamNameChunks));
+        if((mask & MEMBER_IDS) != 0) appendCondition(where, inChunks("m.id", "memberIds", memberIdChunks));
+        return where.toString();
+    }
+
+    private static int chunkCount(int mask, int bit) {
+        return (mask & bit) != 0 ? 1 : 0;
+    }
+
+    //m.username in :usernames0  /  (m.username in :usernames0 or m.username in :usernames1 ...)
+    private static String inChunks(String path, String parameter, int chunks) {
+        StringJoiner joiner = chunks > 1 ? new StringJoiner(" or ", "(", ")") : new StringJoiner("");
+        for (int i = 0; i < chunks; i++) {
+            joiner.add(path + " in :" + parameter + i);
+        }
+        return joiner.toString();
+    }
+
+    private static void bindChunks(Query query, String parameter, List<? extends List<?>> chunks) {
+        for (int i = 0; i < chunks.size(); i++) {
+            query.setParameter(parameter + i, chunks.get(i));
+        }
+    }
+
+    private static void appendCondition(StringBuilder where, String condition) {
+        where.append(where.length() == 0 ? " where " : " and ").append(condition);
+    }
+
+}
@@ -0,0 +1,51 @@
+package ex.querydsl.repository;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import ex.querydsl.dto.MemberField;
+import ex.querydsl.dto.MemberSearch;
+import ex.querydsl.dto.MemberTeamDto;
+import ex.querydsl.dto.QMemberTeamDto;
+import ex.querydsl.projection.FastProjections;
+import org.springframework.util.CollectionUtils;
+
+import java.util.Set;
+
+import static ex.querydsl.entity.QMember.member;
+import static ex.querydsl.entity.QTeam.team;
+
+//fields= 로 고른 MemberTeamDto 필드의 프로젝션
+//MemberRepositoryCustomImpl, MemberJpaRepository, /v4 컨트롤러가 같은 규칙으로 조회하도록 한곳에 둔다
+public final class MemberTeamProjections {
+
+    private MemberTeamProjections() {
+    }
+
+    //fields 로 고른 컬럼만 조회한다 - 전체면 생성자 프로젝션(QMemberTeamDto), 일부면 고른 프로퍼티만 세터로 채운다
+    public static FactoryExpression<MemberTeamDto> of(Set<MemberField> fields) {
+        if(fields.size() == MemberField.values().length) {
+            return new QMemberTeamDto(
+                    member.id.as("memberId"),
+                    member.username,
+                    member.age,
+                    team.id.as("teamId"),
+                    team.name.as("teamName")
+            );
+        }
+        Expression<?>[] columns = fields.stream().map(field -> switch (field) {
+            case MEMBER_ID -> member.id.as("memberId");
+            case USERNAME -> member.username;
+            case AGE -> member.age;
+            case TEAM_ID -> team.id.as("teamId");
+            case TEAM_NAME -> team.name.as("teamName");
+        }).toArray(Expression<?>[]::new);
+        return FastProjections.bean(MemberTeamDto.class, columns);
+    }
+
+    //전체 필드 조회는 생성자 프로젝션 하나로 정해지므로 쿼리 모양 캐시(MemberSearchShape)의 JPQL 을 쓸 수 있다
+    static boolean allFields(MemberSearch search) {
+        return CollectionUtils.isEmpty(search.getFields())
+                || MemberField.parse(search.getFields()).size() == MemberField.values().length;
+    }
+
+}
@@ -0,0 +1,98 @@
+package ex.querydsl.repository;
+
+import ex.querydsl.monitor.QueryCount;
+import ex.querydsl.monitor.QueryCounter;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import static ex.querydsl.event.Transactions.inReadWriteTransaction;
+
+//페이징 content 쿼리와 count 쿼리 실행기
+//순차 실행하면 응답 시간이 두 쿼리의 합이 되지만 가상 스레드에서 동시에 실행하면 둘 중 느린 쪽의 시간에 가까워진다
+//각 쿼리는 자기 스레드의 읽기 전용 트랜잭션(= 별도의 EntityManager 와 커넥션)에서 실행된다
+//커넥션이 다르기 때문에 두 쿼리가 같은 스냅샷을 보지는 않는다 - 순차 실행도 READ COMMITTED 에서는 마찬가지
+//member.search.parallel-count 로 켜고 끌 수 있다(부하 테스트 A/B 용)
+//호출한 메서드의 바깥 트랜잭션은 SQL 을 실행하지 않으므로 DataSource 가 지연 프록시(LazyConnectionDataSourceConfig)일 때
+//커넥션을 얻지 않는다 - 요청 하나가 쓰는 커넥션은 두 개(content, count)
+@Component
+public class PageQueryExecutor {
+
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean parallel;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public PageQueryExecutor(PlatformTransactionManager transactionManager,
+                             @Value("${member.search.parallel-count:false}") boolean parallel) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.parallel = parallel;
+    }
+
+    public <T> Page<T> getPage(Supplier<List<T>> content, Pageable pageable, LongSupplier count) {
+        //쓰기 트랜잭션 안이라면 아직 커밋되지 않은 변경은 다른 커넥션에서 보이지 않으므로 호출 스레드에서 순차 실행한다
+        if(!parallel || inReadWriteTransaction()) {
+            return new PageImpl<>(content.get(), pageable, count.getAsLong());
+        }
+
+        //가상 스레드에서 실행한 쿼리도 호출한 요청/메서드의 SQL 통계에 포함되도록 측정 구간을 넘긴다
+        //요청 속성도 넘긴다 - replica 라우팅이 요청한 클라이언트의 read-your-writes 구간을 확인한다
+        List<QueryCount> queryCounts = QueryCounter.capture();
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        Future<List<T>> contentFuture = executor.submit(() -> QueryCounter.callWith(queryCounts,
+                () -> inRequest(request, () -> readOnlyTransaction.execute(status -> content.get()))));
+        Future<Long> countFuture = executor.submit(() -> QueryCounter.callWith(queryCounts,
+                () -> inRequest(request, () -> readOnlyTransaction.execute(status -> count.getAsLong()))));
+
+        return new PageImpl<>(await(contentFuture), pageable, await(countFuture));
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.close();
+    }
+
+    private static <T> T inRequest(RequestAttributes request, Supplier<T> task) {
+        if(request == null) return task.get();
+        RequestContextHolder.setRequestAttributes(request);
+        try {
+            return task.get();
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("페이징 쿼리 대기 중 인터럽트", e);
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+}
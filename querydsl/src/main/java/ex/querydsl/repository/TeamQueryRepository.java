@@ -0,0 +1,50 @@
+package ex.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import ex.querydsl.entity.Team;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static ex.querydsl.entity.QMember.member;
+import static ex.querydsl.entity.QTeam.team;
+
+@Repository
+@RequiredArgsConstructor
+public class TeamQueryRepository {
+
+    private final JPAQueryFactory queryFactory;
+
+    //팀과 소속 회원을 페이지 단위로 조회
+    //join(team.members).fetchJoin() 에 offset/limit 을 걸면 행 단위가 회원이라 DB 에서 자를 수 없어서
+    //하이버네이트가 limit 없이 전체를 읽은 뒤 메모리에서 페이징한다(HHH000104)
+    //팀 id 를 먼저 페이징하고 그 팀들만 fetch join 으로 조회한다
+    @Transactional(readOnly = true)
+    public Page<Team> findTeamsWithMembers(Pageable pageable) {
+        JPAQuery<Long> idQuery = queryFactory
+                .select(team.id)
+                .from(team)
+                .orderBy(team.id.asc());
+
+        List<Team> content = IdsFirstPaging.fetch(idQuery, pageable,
+                ids -> queryFactory
+                        .selectFrom(team)
+                        .leftJoin(team.members, member).fetchJoin()
+                        .where(team.id.in(ids))
+                        .fetch(),
+                Team::getId);
+
+        JPAQuery<Long> countQuery = queryFactory
+                .select(team.count())
+                .from(team);
+
+        return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchOne);
+    }
+
+}
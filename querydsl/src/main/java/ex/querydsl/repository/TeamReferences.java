@@ -0,0 +1,70 @@
+package ex.querydsl.repository;
+
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.core.types.TemplateExpression;
+import com.querydsl.core.types.Visitor;
+
+import java.util.Collection;
+
+import static ex.querydsl.entity.QTeam.team;
+
+//식 안에 team 별칭(QTeam.team) 경로가 있는지 - 있으면 member 에 team 을 조인해야 한다
+//member.team.name 처럼 member 에서 시작하는 경로는 JPQL 이 알아서 조인하므로 해당하지 않는다
+//서브쿼리는 바깥 team 을 참조하는지 따지지 않고 참조한다고 본다
+final class TeamReferences implements Visitor<Boolean, Void> {
+
+    private static final TeamReferences INSTANCE = new TeamReferences();
+
+    private TeamReferences() {
+    }
+
+    static boolean in(Expression<?> expression) {
+        return expression != null && expression.accept(INSTANCE, null);
+    }
+
+    @Override
+    public Boolean visit(Constant<?> expr, Void context) {
+        return false;
+    }
+
+    @Override
+    public Boolean visit(FactoryExpression<?> expr, Void context) {
+        return any(expr.getArgs());
+    }
+
+    @Override
+    public Boolean visit(Operation<?> expr, Void context) {
+        return any(expr.getArgs());
+    }
+
+    @Override
+    public Boolean visit(ParamExpression<?> expr, Void context) {
+        return false;
+    }
+
+    @Override
+    public Boolean visit(Path<?> expr, Void context) {
+        return expr.getRoot().equals(team);
+    }
+
+    @Override
+    public Boolean visit(SubQueryExpression<?> expr, Void context) {
+        return true;
+    }
+
+    @Override
+    public Boolean visit(TemplateExpression<?> expr, Void context) {
+        return expr.getArgs().stream().anyMatch(arg -> arg instanceof Expression<?> expression && in(expression));
+    }
+
+    private static boolean any(Collection<? extends Expression<?>> args) {
+        return args.stream().anyMatch(TeamReferences::in);
+    }
+
+}
@@ -0,0 +1,240 @@
+package ex.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import ex.querydsl.dto.TeamStatsDto;
+import ex.querydsl.entity.Member;
+import ex.querydsl.event.AfterCommitBuffer;
+import ex.querydsl.event.BulkChangedEvent;
+import ex.querydsl.event.MemberChangedEvent;
+import ex.querydsl.event.TeamChangedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static ex.querydsl.entity.QMember.member;
+import static ex.querydsl.entity.QTeam.team;
+
+//팀별 통계(회원 수, 평균/최소/최대 나이)
+//조회할 때마다 groupBy 로 member 테이블 전체를 읽는 대신 메모리에 팀별 집계를 유지한다
+//- 회원 등록/삭제/팀 변경/나이 변경 이벤트를 커밋 후에 트랜잭션 단위로 반영(롤백된 변경은 반영되지 않는다)
+//- 나이나 팀을 바꾼 벌크 연산, 애플리케이션 시작, 주기적으로 DB 를 다시 집계해서 전체를 교체(reconcile)
+//조회 비용은 회원 수와 상관없이 팀 수에 비례한다
+//reconcile 중에 커밋된 변경은 집계 쿼리에 들어갔는지 알 수 없으므로 바뀐 팀 id 를 기록해 두고 그 팀들만 다시 센다
+//집계는 더하고 빼는 값이라 MemberAgeIndex 처럼 이벤트를 다시 적용하면 이미 읽은 변경이 두 번 반영될 수 있다
+@Repository
+public class TeamStatsRepository {
+
+    //다시 세는 동안에도 계속 바뀌는 팀은 이 횟수까지만 다시 세고 이벤트로 유지한 지금 집계를 그대로 쓴다
+    private static final int MAX_RECOUNT_ROUNDS = 3;
+
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate reconcileTransaction;
+
+    private volatile Map<Long, TeamAggregate> aggregates = new ConcurrentHashMap<>();
+
+    //reconcile 중에 바뀐 팀 id - reconcile 중이 아니면 null, lock 으로 보호
+    private final Object lock = new Object();
+    private Set<Long> changedDuringReconcile;
+
+    //reconcile 을 한 번에 하나만 실행한다
+    private final Object reconcileMonitor = new Object();
+
+    private final AfterCommitBuffer<MemberChangedEvent> memberChanges = new AfterCommitBuffer<>(this::applyMemberChanges);
+
+    public TeamStatsRepository(JPAQueryFactory queryFactory, PlatformTransactionManager transactionManager) {
+        this.queryFactory = queryFactory;
+        //MemberAgeIndex 와 같이 새 읽기 전용 트랜잭션에서 읽는다
+        this.reconcileTransaction = new TransactionTemplate(transactionManager);
+        this.reconcileTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.reconcileTransaction.setReadOnly(true);
+    }
+
+    public List<TeamStatsDto> findAll() {
+        return aggregates.values().stream()
+                .map(TeamAggregate::toDto)
+                .sorted(Comparator.comparing(TeamStatsDto::getTeamId))
+                .toList();
+    }
+
+    @EventListener
+    public void onMemberChanged(MemberChangedEvent event) {
+        memberChanges.add(event);
+    }
+
+    private void applyMemberChanges(List<MemberChangedEvent> events) {
+        synchronized (lock) {
+            Map<Long, TeamAggregate> current = aggregates;
+            for (MemberChangedEvent event : events) {
+                if(event.getOldTeamId() != null && event.getOldAge() != null) {
+                    TeamAggregate old = current.get(event.getOldTeamId());
+                    if(old != null) old.remove(event.getOldAge());
+                    changed(event.getOldTeamId());
+                }
+                if(event.getTeamId() != null && event.getAge() != null) {
+                    current.computeIfAbsent(event.getTeamId(), TeamAggregate::new).add(event.getAge());
+                    changed(event.getTeamId());
+                }
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTeamChanged(TeamChangedEvent event) {
+        synchronized (lock) {
+            changed(event.getTeamId());
+            if(event.getType() == TeamChangedEvent.Type.REMOVED) {
+                aggregates.remove(event.getTeamId());
+                return;
+            }
+            aggregates.computeIfAbsent(event.getTeamId(), TeamAggregate::new).rename(event.getName());
+        }
+    }
+
+    private void changed(Long teamId) {
+        if(changedDuringReconcile != null) changedDuringReconcile.add(teamId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkChanged(BulkChangedEvent event) {
+        if(event.affects(Member.class, "age", "team")) {
+            reconcile();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reconcile();
+    }
+
+    //팀, 나이별 회원 수를 한 번에 집계해서 전체를 교체한다
+    @Scheduled(fixedDelayString = "${team.stats.reconcile-interval:PT5M}", initialDelayString = "${team.stats.reconcile-interval:PT5M}")
+    public void reconcile() {
+        reconcile(() -> {
+        });
+    }
+
+    //afterLoad : 테스트용 - 전체를 집계한 뒤 바뀐 팀을 확인하기 전에 실행한다
+    void reconcile(Runnable afterLoad) {
+        synchronized (reconcileMonitor) {
+            synchronized (lock) {
+                changedDuringReconcile = new HashSet<>();
+            }
+            try {
+                Map<Long, TeamAggregate> rebuilt = new ConcurrentHashMap<>(count(null));
+                afterLoad.run();
+                for (int round = 0; ; round++) {
+                    Set<Long> changed;
+                    synchronized (lock) {
+                        changed = changedDuringReconcile;
+                        if(changed.isEmpty() || round == MAX_RECOUNT_ROUNDS) {
+                            //다 세지 못한 팀은 이벤트로 유지한 지금 집계를 쓴다
+                            for (Long teamId : changed) {
+                                TeamAggregate current = aggregates.get(teamId);
+                                if(current != null) rebuilt.put(teamId, current);
+                                else rebuilt.remove(teamId);
+                            }
+                            aggregates = rebuilt;
+                            return;
+                        }
+                        changedDuringReconcile = new HashSet<>();
+                    }
+                    Map<Long, TeamAggregate> recounted = count(changed);
+                    for (Long teamId : changed) {
+                        TeamAggregate aggregate = recounted.get(teamId);
+                        if(aggregate != null) rebuilt.put(teamId, aggregate);
+                        else rebuilt.remove(teamId);
+                    }
+                }
+            } finally {
+                synchronized (lock) {
+                    changedDuringReconcile = null;
+                }
+            }
+        }
+    }
+
+    //teamIds 가 null 이면 전체 팀
+    private Map<Long, TeamAggregate> count(Set<Long> teamIds) {
+        List<Tuple> rows = reconcileTransaction.execute(status -> queryFactory
+                .select(team.id, team.name, member.age, member.count())
+                .from(team)
+                .leftJoin(team.members, member)
+                .where(teamIds != null ? team.id.in(teamIds) : null)
+                .groupBy(team.id, team.name, member.age)
+                .fetch());
+
+        Map<Long, TeamAggregate> counted = new HashMap<>();
+        for (Tuple row : rows) {
+            TeamAggregate aggregate = counted.computeIfAbsent(row.get(team.id), TeamAggregate::new);
+            aggregate.rename(row.get(team.name));
+            Integer age = row.get(member.age);
+            Long count = row.get(member.count());
+            if(age != null && count != null && count > 0) {
+                aggregate.add(age, count);
+            }
+        }
+        return counted;
+    }
+
+    //팀 하나의 집계 - 최소/최대 나이는 삭제 시에도 바로 구할 수 있도록 나이별 회원 수를 유지한다
+    private static class TeamAggregate {
+
+        private final Long teamId;
+        private String teamName;
+        private long count;
+        private long ageSum;
+        private final TreeMap<Integer, Long> ageCounts = new TreeMap<>();
+
+        TeamAggregate(Long teamId) {
+            this.teamId = teamId;
+        }
+
+        synchronized void rename(String teamName) {
+            this.teamName = teamName;
+        }
+
+        void add(int age) {
+            add(age, 1);
+        }
+
+        synchronized void add(int age, long n) {
+            count += n;
+            ageSum += age * n;
+            ageCounts.merge(age, n, Long::sum);
+        }
+
+        synchronized void remove(int age) {
+            Long n = ageCounts.get(age);
+            if(n == null) return;
+            count--;
+            ageSum -= age;
+            if(n == 1) ageCounts.remove(age);
+            else ageCounts.put(age, n - 1);
+        }
+
+        synchronized TeamStatsDto toDto() {
+            if(count == 0) {
+                return new TeamStatsDto(teamId, teamName, 0, null, null, null);
+            }
+            return new TeamStatsDto(teamId, teamName, count, (double) ageSum / count,
+                    ageCounts.firstKey(), ageCounts.lastKey());
+        }
+
+    }
+
+}
@@ -0,0 +1,300 @@
+package ex.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import ex.querydsl.entity.Member;
+import ex.querydsl.event.AfterCommitBuffer;
+import ex.querydsl.event.BulkChangedEvent;
+import ex.querydsl.event.MemberChangedEvent;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import static ex.querydsl.entity.QMember.member;
+
+//회원 이름 자동완성용 접두어 검색
+//정규화한(trim + 소문자) 이름으로 저장하고 같은 이름을 가진 회원 수를 센다
+//문자마다 노드(TreeMap)를 두는 트라이는 이름 수가 많으면 노드와 엔트리 객체만으로 힙을 수 GB 씩 차지하므로
+//정렬된 String[] 과 int[] 회원 수로 보관한다 - 접두어로 시작하는 이름은 배열에서 연속 구간이므로 이분 탐색 두 번으로 찾는다
+//변경은 배열에 바로 넣지 않고(삽입마다 배열 복사) 이름별 회원 수 변화(delta)에 모았다가 일정 크기가 넘으면 배열로 합친다
+//조회는 배열 구간과 delta 의 같은 구간을 병합하면서 사전 순으로 limit 개까지만 본다
+//커밋된 MemberChangedEvent 로 갱신하고 시작 시점과 이름을 바꾼 벌크 연산 후에는 DB 에서 다시 만든다
+//다시 만드는 동안 바뀐 이름은 모아 두었다가 DB 를 다 읽은 뒤 그 이름만 다시 세서 덮어쓴다
+//(회원 수는 같은 변경을 두 번 적용하면 틀어지므로 이벤트를 다시 적용하는 대신 DB 값으로 덮어쓴다)
+@Component
+public class UsernamePrefixTrie {
+
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate rebuildTransaction;
+    private final int compactThreshold;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Names names = Names.EMPTY;
+    //names 대비 이름별 회원 수 변화 - 0 이 되면 지운다
+    private final TreeMap<String, Integer> delta = new TreeMap<>();
+    //다시 만드는 중에 바뀐 이름 - 다시 만드는 중이 아니면 null
+    private Set<String> changedDuringRebuild = null;
+
+    //다시 만들기는 한 번에 하나씩
+    private final Object rebuildMonitor = new Object();
+
+    private final AfterCommitBuffer<MemberChangedEvent> memberChanges = new AfterCommitBuffer<>(this::applyMemberChanges);
+
+    public UsernamePrefixTrie(JPAQueryFactory queryFactory, PlatformTransactionManager transactionManager,
+                              @Value("${member.username-prefix.compact-threshold:4096}") int compactThreshold) {
+        this.queryFactory = queryFactory;
+        this.rebuildTransaction = new TransactionTemplate(transactionManager);
+        this.rebuildTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.rebuildTransaction.setReadOnly(true);
+        this.compactThreshold = compactThreshold;
+    }
+
+    //접두어로 시작하는 이름을 사전 순으로 limit 개까지
+    public List<String> complete(String prefix, int limit) {
+        String normalized = Member.normalizeUsername(prefix);
+        List<String> result = new ArrayList<>();
+        if(normalized == null || limit <= 0) return result;
+        String to = normalized + Character.MAX_VALUE;
+
+        lock.readLock().lock();
+        try {
+            int index = names.lowerBound(normalized);
+            int end = names.lowerBound(to);
+            Iterator<Map.Entry<String, Integer>> changes = delta.subMap(normalized, true, to, false).entrySet().iterator();
+            Map.Entry<String, Integer> change = changes.hasNext() ? changes.next() : null;
+
+            while (result.size() < limit && (index < end || change != null)) {
+                int order = index >= end ? 1 : change == null ? -1 : names.names[index].compareTo(change.getKey());
+                String name;
+                int count;
+                if(order < 0) {
+                    name = names.names[index];
+                    count = names.counts[index++];
+                } else if(order > 0) {
+                    name = change.getKey();
+                    count = change.getValue();
+                    change = changes.hasNext() ? changes.next() : null;
+                } else {
+                    name = names.names[index];
+                    count = names.counts[index++] + change.getValue();
+                    change = changes.hasNext() ? changes.next() : null;
+                }
+                if(count > 0) result.add(name);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onMemberChanged(MemberChangedEvent event) {
+        memberChanges.add(event);
+    }
+
+    private void applyMemberChanges(List<MemberChangedEvent> events) {
+        lock.writeLock().lock();
+        try {
+            for (MemberChangedEvent event : events) {
+                String oldName = Member.normalizeUsername(event.getOldUsername());
+                String newName = Member.normalizeUsername(event.getUsername());
+                if(event.getType() == MemberChangedEvent.Type.UPDATED && Objects.equals(oldName, newName)) continue;
+                if(oldName != null) change(oldName, -1);
+                if(newName != null) change(newName, 1);
+            }
+            if(delta.size() > compactThreshold) {
+                names = names.merge(delta);
+                delta.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkChanged(BulkChangedEvent event) {
+        if(event.affects(Member.class, "username")) {
+            rebuild();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        rebuild(() -> {
+        });
+    }
+
+    //afterLoad : 테스트용 - DB 를 읽은 뒤 교체하기 전에 실행한다
+    void rebuild(Runnable afterLoad) {
+        synchronized (rebuildMonitor) {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = new HashSet<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            try {
+                List<String> rows = new ArrayList<>();
+                rebuildTransaction.executeWithoutResult(status -> {
+                    try (Stream<String> stream = queryFactory
+                            .select(member.usernameNormalized)
+                            .from(member)
+                            .where(member.usernameNormalized.isNotNull())
+                            .setHint(HibernateHints.HINT_FETCH_SIZE, 1000)
+                            .stream()) {
+                        stream.forEach(rows::add);
+                    }
+                });
+                //DB 정렬(collation)은 String.compareTo 와 다를 수 있으므로 정렬은 여기서 한다
+                rows.sort(null);
+                Names rebuilt = Names.ofSorted(rows);
+                rows.clear();
+                afterLoad.run();
+
+                //읽는 도중에 바뀐 이름은 DB 에서 다시 센다 - 다시 세는 동안 또 바뀌면 그 이름만 한 번 더
+                while (true) {
+                    Set<String> changed;
+                    lock.writeLock().lock();
+                    try {
+                        if(changedDuringRebuild.isEmpty()) {
+                            names = rebuilt;
+                            delta.clear();
+                            return;
+                        }
+                        changed = changedDuringRebuild;
+                        changedDuringRebuild = new HashSet<>();
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                    rebuilt = rebuilt.merge(recount(changed, rebuilt));
+                }
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    changedDuringRebuild = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    //바뀐 이름의 DB 회원 수와 지금 배열의 회원 수 차이
+    private TreeMap<String, Integer> recount(Set<String> changed, Names current) {
+        TreeMap<String, Integer> counts = new TreeMap<>();
+        changed.forEach(name -> counts.put(name, 0));
+        rebuildTransaction.executeWithoutResult(status -> {
+            for (List<String> chunk : InLists.chunks(new ArrayList<>(changed), 512)) {
+                for (Tuple row : queryFactory
+                        .select(member.usernameNormalized, member.count())
+                        .from(member)
+                        .where(member.usernameNormalized.in(chunk))
+                        .groupBy(member.usernameNormalized)
+                        .fetch()) {
+                    counts.put(row.get(member.usernameNormalized), row.get(member.count()).intValue());
+                }
+            }
+        });
+        TreeMap<String, Integer> difference = new TreeMap<>();
+        counts.forEach((name, count) -> {
+            int n = count - current.count(name);
+            if(n != 0) difference.put(name, n);
+        });
+        return difference;
+    }
+
+    private void change(String name, int n) {
+        if(changedDuringRebuild != null) changedDuringRebuild.add(name);
+        delta.merge(name, n, (a, b) -> a + b == 0 ? null : a + b);
+    }
+
+    //정렬된 이름과 이름별 회원 수 - 한 번 만들면 바꾸지 않는다
+    private static final class Names {
+
+        static final Names EMPTY = new Names(new String[0], new int[0]);
+
+        final String[] names;
+        final int[] counts;
+
+        private Names(String[] names, int[] counts) {
+            this.names = names;
+            this.counts = counts;
+        }
+
+        //정렬된 이름 목록(중복 포함)을 이름별 회원 수로 묶는다
+        static Names ofSorted(List<String> sortedNames) {
+            String[] names = new String[sortedNames.size()];
+            int[] counts = new int[sortedNames.size()];
+            int size = 0;
+            for (String name : sortedNames) {
+                if(size > 0 && names[size - 1].equals(name)) {
+                    counts[size - 1]++;
+                } else {
+                    names[size] = name;
+                    counts[size++] = 1;
+                }
+            }
+            return new Names(Arrays.copyOf(names, size), Arrays.copyOf(counts, size));
+        }
+
+        int count(String name) {
+            int index = Arrays.binarySearch(names, name);
+            return index >= 0 ? counts[index] : 0;
+        }
+
+        //delta 를 합친 새 배열 - 회원 수가 0 이하가 된 이름은 뺀다
+        Names merge(TreeMap<String, Integer> delta) {
+            String[] mergedNames = new String[names.length + delta.size()];
+            int[] mergedCounts = new int[mergedNames.length];
+            int size = 0;
+            int index = 0;
+            for (Map.Entry<String, Integer> change : delta.entrySet()) {
+                while (index < names.length && names[index].compareTo(change.getKey()) < 0) {
+                    mergedNames[size] = names[index];
+                    mergedCounts[size++] = counts[index++];
+                }
+                int count = change.getValue();
+                if(index < names.length && names[index].equals(change.getKey())) {
+                    count += counts[index++];
+                }
+                if(count > 0) {
+                    mergedNames[size] = change.getKey();
+                    mergedCounts[size++] = count;
+                }
+            }
+            while (index < names.length) {
+                mergedNames[size] = names[index];
+                mergedCounts[size++] = counts[index++];
+            }
+            return new Names(Arrays.copyOf(mergedNames, size), Arrays.copyOf(mergedCounts, size));
+        }
+
+        //key 보다 작은 이름의 수
+        int lowerBound(String key) {
+            int index = Arrays.binarySearch(names, key);
+            return index >= 0 ? index : -index - 1;
+        }
+
+    }
+
+}
@@ -10,11 +10,13 @@ import com.querydsl.core.types.dsl.*;
 import com.querydsl.jpa.JPAExpressions;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import ex.querydsl.dto.MemberDto;
+import ex.querydsl.dto.MemberTeamDto;
 import ex.querydsl.dto.QMemberDto;
 import ex.querydsl.dto.UserDto;
 import ex.querydsl.entity.Member;
 import ex.querydsl.entity.QMember;
 import ex.querydsl.entity.Team;
+import ex.querydsl.projection.FastProjections;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.PersistenceUnit;
@@ -29,6 +31,8 @@ import java.util.List;
 import static com.querydsl.jpa.JPAExpressions.*;
 import static ex.querydsl.entity.QMember.*;
 import static ex.querydsl.entity.QTeam.*;
+import static ex.querydsl.monitor.QueryCountAssertions.assertQueryCount;
+import static ex.querydsl.monitor.QueryCountAssertions.startQueryCount;
 import static org.assertj.core.api.Assertions.assertThat;
 
 @SpringBootTest
@@ -374,6 +378,32 @@ public class QuerydslBasicTest {
         assertThat(isLoaded2).isTrue();
     }
 
+    //N+1
+    //지연 로딩인 팀을 회원마다 꺼내면 팀 조회 쿼리가 추가로 나간다(같은 팀은 영속성 컨텍스트에서 재사용)
+    @Test
+    void fetchJoinQueryCount() {
+
+        em.flush();
+        em.clear();
+
+        startQueryCount();
+        List<Member> lazyMembers = queryFactory
+                .selectFrom(member)
+                .fetch();
+        lazyMembers.forEach(m -> m.getTeam().getName());
+        assertQueryCount(3);
+
+        em.clear();
+
+        startQueryCount();
+        List<Member> fetchMembers = queryFactory
+                .selectFrom(member)
+                .join(member.team, team).fetchJoin()
+                .fetch();
+        fetchMembers.forEach(m -> m.getTeam().getName());
+        assertQueryCount(1);
+    }
+
     //서브 쿼리
     @Test
     void subQuery() {
@@ -676,6 +706,38 @@ public class QuerydslBasicTest {
         }
     }
 
+    //리플렉션 없는 프로젝션 - FastProjections
+    //사용 방법은 Projections 와 같고 결과도 같아야 한다
+    @Test
+    void fastProjections() {
+
+        List<MemberDto> beanResult = queryFactory
+                .select(FastProjections.bean(MemberDto.class, member.username, member.age))
+                .from(member)
+                .fetch();
+        List<MemberDto> expected = queryFactory
+                .select(Projections.bean(MemberDto.class, member.username, member.age))
+                .from(member)
+                .fetch();
+        assertThat(beanResult).isEqualTo(expected);
+
+        List<UserDto> fieldResult = queryFactory
+                .select(FastProjections.fields(UserDto.class, member.username.as("name"), member.age))
+                .from(member)
+                .fetch();
+        assertThat(fieldResult).extracting("name")
+                .containsExactly("MemberA", "MemberB", "MemberC", "MemberD");
+
+        List<MemberTeamDto> constructorResult = queryFactory
+                .select(FastProjections.constructor(MemberTeamDto.class,
+                        member.id, member.username, member.age, team.id, team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .fetch();
+        assertThat(constructorResult).extracting("teamName")
+                .containsExactly("TeamA", "TeamA", "TeamB", "TeamB");
+    }
+
     //동적쿼리 - BooleanBuilder
     @Test
     void booleanBuilder() {
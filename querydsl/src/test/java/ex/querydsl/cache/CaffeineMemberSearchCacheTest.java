@@ -0,0 +1,160 @@
+package ex.querydsl.cache;
+
+import ex.querydsl.dto.MemberSearch;
+import ex.querydsl.dto.MemberTeamDto;
+import ex.querydsl.entity.Member;
+import ex.querydsl.entity.Team;
+import ex.querydsl.repository.MemberRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static ex.querydsl.monitor.QueryCountAssertions.assertQueryCount;
+import static ex.querydsl.monitor.QueryCountAssertions.startQueryCount;
+import static org.assertj.core.api.Assertions.assertThat;
+
+//검색 결과 캐시 무효화
+//커밋 후 무효화를 확인해야 하므로 테스트 트랜잭션(@Transactional)을 쓰지 않고 전용 메모리 DB 를 사용한다
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:search-cache;DB_CLOSE_DELAY=-1")
+class CaffeineMemberSearchCacheTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberSearchCache searchCache;
+
+    @BeforeEach
+    void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+            Team teamA = new Team("TeamA");
+            Team teamB = new Team("TeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(Member.builder().username("MemberA").age(20).team(teamA).build());
+            em.persist(Member.builder().username("MemberB").age(30).team(teamB).build());
+        });
+    }
+
+    //조회 중에 무효화되면 조회 결과는 반환하지만 캐시에 담지 않는다
+    @Test
+    void invalidationDuringLoadIsNotCached() {
+
+        CaffeineMemberSearchCache cache = new CaffeineMemberSearchCache(100, Duration.ofMinutes(5));
+        MemberSearchKey key = MemberSearchKey.of("search", MemberSearch.builder().username("MemberA").build(), Pageable.unpaged());
+
+        String stale = cache.get(key, () -> {
+            cache.invalidateAll();
+            return "stale";
+        });
+        assertThat(stale).isEqualTo("stale");
+        assertThat(cache.get(key, () -> "fresh")).isEqualTo("fresh");
+        assertThat(cache.get(key, () -> "reloaded")).isEqualTo("fresh");
+    }
+
+    @Test
+    void invalidatedOnSave() {
+
+        MemberSearch search = MemberSearch.builder().teamName("TeamA").build();
+        assertThat(memberRepository.search(search)).extracting("username").containsExactly("MemberA");
+
+        //두 번째 조회는 캐시에서
+        startQueryCount();
+        memberRepository.search(search);
+        assertQueryCount(0);
+
+        transactionTemplate.executeWithoutResult(status -> memberRepository.save(Member.builder()
+                .username("MemberC").age(40).team(teamByName("TeamA")).build()));
+
+        assertThat(memberRepository.search(search)).extracting("username")
+                .containsExactlyInAnyOrder("MemberA", "MemberC");
+    }
+
+    //플러시만으로는 무효화하지 않는다 - 커밋 전에는 다른 요청이 읽어도 예전 결과이므로 캐시가 그대로 맞다
+    @Test
+    void flushDoesNotInvalidate() {
+
+        MemberSearch search = MemberSearch.builder().teamName("TeamA").build();
+        memberRepository.search(search);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            memberRepository.save(Member.builder().username("MemberC").age(40).team(teamByName("TeamA")).build());
+            em.flush();
+
+            long hits = searchCache.stats().getHitCount();
+            List<MemberTeamDto> other = CompletableFuture.supplyAsync(() -> memberRepository.search(search)).join();
+            assertThat(other).extracting("username").containsExactly("MemberA");
+            assertThat(searchCache.stats().getHitCount()).isEqualTo(hits + 1);
+        });
+
+        assertThat(memberRepository.search(search)).extracting("username")
+                .containsExactlyInAnyOrder("MemberA", "MemberC");
+    }
+
+    @Test
+    void invalidatedOnChangeTeam() {
+
+        MemberSearch search = MemberSearch.builder().teamName("TeamB").build();
+        assertThat(memberRepository.search(search)).extracting("username").containsExactly("MemberB");
+
+        transactionTemplate.executeWithoutResult(status ->
+                memberRepository.findByUsername("MemberA").get(0).changeTeam(teamByName("TeamB")));
+
+        assertThat(memberRepository.search(search)).extracting("username")
+                .containsExactlyInAnyOrder("MemberA", "MemberB");
+    }
+
+    @Test
+    void invalidatedOnBulkOperations() {
+
+        MemberSearch adults = MemberSearch.builder().ageGoe(21).ageLoe(100).build();
+        assertThat(memberRepository.search(adults)).extracting("username").containsExactly("MemberB");
+
+        memberRepository.bulkAddAge(MemberSearch.builder().username("MemberA").build(), 5);
+        assertThat(memberRepository.search(adults)).extracting("username")
+                .containsExactlyInAnyOrder("MemberA", "MemberB");
+
+        memberRepository.bulkDelete(MemberSearch.builder().username("MemberB").build());
+        assertThat(memberRepository.search(adults)).extracting("username").containsExactly("MemberA");
+    }
+
+    //쓰기 트랜잭션 안의 조회는 커밋되지 않은 결과를 보지만 캐시에 남기지 않는다
+    @Test
+    void readWriteTransactionBypassesCache() {
+
+        MemberSearch search = MemberSearch.builder().teamName("TeamA").build();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(Member.builder().username("Uncommitted").age(40).team(teamByName("TeamA")).build());
+            List<MemberTeamDto> inTransaction = memberRepository.search(search);
+            assertThat(inTransaction).extracting("username").containsExactlyInAnyOrder("MemberA", "Uncommitted");
+            status.setRollbackOnly();
+        });
+
+        assertThat(memberRepository.search(search)).extracting("username").containsExactly("MemberA");
+        assertThat(searchCache.stats().getEstimatedSize()).isEqualTo(1);
+    }
+
+    private Team teamByName(String name) {
+        return em.createQuery("select t from Team t where t.name = :name", Team.class)
+                .setParameter("name", name)
+                .getSingleResult();
+    }
+
+}
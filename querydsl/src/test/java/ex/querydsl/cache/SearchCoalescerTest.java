@@ -0,0 +1,72 @@
+package ex.querydsl.cache;
+
+import ex.querydsl.dto.MemberSearch;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchCoalescerTest {
+
+    @Test
+    void identicalConcurrentSearchesRunOnce() throws Exception {
+
+        SearchCoalescer coalescer = new SearchCoalescer(new SimpleMeterRegistry(), Duration.ofSeconds(5));
+        //정규화하면 같은 키 - 앞뒤 공백, 대소문자만 다른 이름
+        MemberSearchKey key1 = MemberSearchKey.of("search", MemberSearch.builder().usernameIgnoreCase("MemberA").build(), PageRequest.of(0, 10));
+        MemberSearchKey key2 = MemberSearchKey.of("search", MemberSearch.builder().usernameIgnoreCase(" membera ").build(), PageRequest.of(0, 10));
+
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> leader = executor.submit(() -> coalescer.execute(key1, () -> {
+                executions.incrementAndGet();
+                started.countDown();
+                await(release);
+                return "result";
+            }));
+            started.await();
+
+            List<Future<String>> followers = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                followers.add(executor.submit(() -> coalescer.execute(key2, () -> {
+                    executions.incrementAndGet();
+                    return "duplicate";
+                })));
+            }
+            //기다리는 요청이 모두 합류할 시간을 준다
+            Thread.sleep(200);
+            release.countDown();
+
+            assertThat(leader.get()).isEqualTo("result");
+            for (Future<String> follower : followers) {
+                assertThat(follower.get()).isEqualTo("result");
+            }
+        }
+
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(coalescer.coalescedCount()).isEqualTo(20);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+package ex.querydsl.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collections;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//잘못된 요청 값은 500 이 아니라 400 으로 응답한다
+@SpringBootTest(properties = "member.search.batch.max-size=3")
+@AutoConfigureMockMvc
+@Transactional
+class MemberControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    void malformedCursor() throws Exception {
+
+        mockMvc.perform(get("/v5/members").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value("잘못된 커서입니다: not-a-cursor"));
+    }
+
+    @Test
+    void unknownFields() throws Exception {
+
+        mockMvc.perform(get("/v1/members").param("fields", "username,password"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value("알 수 없는 필드입니다: password"));
+        mockMvc.perform(get("/v2/members").param("fields", "password"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v4/members").param("fields", "password"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void oversizedBatch() throws Exception {
+
+        String body = "[" + String.join(",", Collections.nCopies(4, "{}")) + "]";
+
+        mockMvc.perform(post("/members/search:batch").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value("배치 검색은 최대 3건까지 가능합니다: 4"));
+    }
+
+    @Test
+    void sliceSizeLessThanOne() throws Exception {
+
+        mockMvc.perform(get("/v5/members").param("size", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value("size 는 1 이상이어야 합니다: 0"));
+        mockMvc.perform(get("/v5/members").param("size", "1"))
+                .andExpect(status().isOk());
+    }
+
+}
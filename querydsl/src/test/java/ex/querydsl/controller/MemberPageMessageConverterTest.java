@@ -0,0 +1,104 @@
+package ex.querydsl.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import ex.querydsl.dto.CountMode;
+import ex.querydsl.dto.CountedPage;
+import ex.querydsl.dto.MemberSlice;
+import ex.querydsl.dto.MemberTeamDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberPageMessageConverterTest {
+
+    MemberPageMessageConverter converter = new MemberPageMessageConverter();
+
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    Type pageType = ResolvableType.forClassWithGenerics(Page.class, MemberTeamDto.class).getType();
+
+    List<MemberTeamDto> content = List.of(
+            new MemberTeamDto(1L, "Member1", 10, 100L, "TeamA"),
+            new MemberTeamDto(2L, "Member2", 20, null, null));
+
+    CountedPage<MemberTeamDto> page = new CountedPage<>(content, PageRequest.of(0, 2), 5, CountMode.CAPPED, true);
+
+    @Test
+    void leanJson() throws IOException {
+
+        JsonNode body = objectMapper.readTree(write(page, pageType, MemberPageMessageConverter.LEAN_JSON));
+
+        assertThat(body.get("total").asLong()).isEqualTo(5);
+        assertThat(body.get("hasNext").asBoolean()).isTrue();
+        assertThat(body.get("countMode").asText()).isEqualTo("CAPPED");
+        assertThat(body.get("totalCapped").asBoolean()).isTrue();
+        assertThat(body.has("pageable")).isFalse();
+        assertThat(body.get("content").get(0).get("teamName").asText()).isEqualTo("TeamA");
+        //팀이 없는 회원은 teamId, teamName 이 빠진다
+        assertThat(body.get("content").get(1).has("teamId")).isFalse();
+        assertThat(body.get("content").get(1).has("teamName")).isFalse();
+    }
+
+    //CBOR 도 간결한 JSON 과 같은 구조
+    @Test
+    void cbor() throws IOException {
+
+        byte[] cbor = write(page, pageType, MemberPageMessageConverter.CBOR);
+        byte[] json = write(page, pageType, MemberPageMessageConverter.LEAN_JSON);
+
+        assertThat(new ObjectMapper(new CBORFactory()).readTree(cbor).toString()).isEqualTo(objectMapper.readTree(json).toString());
+        assertThat(cbor.length).isLessThan(json.length);
+    }
+
+    @Test
+    void slice() throws IOException {
+
+        MemberSlice slice = new MemberSlice(content, true, "cursor");
+
+        JsonNode body = objectMapper.readTree(write(slice, MemberSlice.class, MemberPageMessageConverter.LEAN_JSON));
+
+        assertThat(body.get("content")).hasSize(2);
+        assertThat(body.get("hasNext").asBoolean()).isTrue();
+        assertThat(body.get("nextCursor").asText()).isEqualTo("cursor");
+    }
+
+    //Accept 가 없거나 다른 결과 타입이면 기본 컨버터에 맡긴다
+    @Test
+    void canWrite() {
+
+        assertThat(converter.canWrite(pageType, Page.class, MemberPageMessageConverter.LEAN_JSON)).isTrue();
+        assertThat(converter.canWrite(pageType, Page.class, null)).isFalse();
+        assertThat(converter.canWrite(pageType, Page.class, MediaType.APPLICATION_JSON)).isFalse();
+        Type stringPage = ResolvableType.forClassWithGenerics(Page.class, String.class).getType();
+        assertThat(converter.canWrite(stringPage, Page.class, MemberPageMessageConverter.LEAN_JSON)).isFalse();
+    }
+
+    //기본 JSON 응답은 간결한 형식의 영향을 받지 않는다 - null 필드도 그대로 나간다
+    @Test
+    void defaultJsonKeepsNullFields() throws IOException {
+
+        JsonNode body = objectMapper.readTree(objectMapper.writeValueAsString(content.get(1)));
+
+        assertThat(body.has("teamId")).isTrue();
+        assertThat(body.get("teamId").isNull()).isTrue();
+        assertThat(body.get("teamName").isNull()).isTrue();
+    }
+
+    private byte[] write(Object result, Type type, MediaType mediaType) throws IOException {
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        converter.write(result, type, mediaType, outputMessage);
+        return outputMessage.getBodyAsBytes();
+    }
+
+}
@@ -0,0 +1,180 @@
+package ex.querydsl.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import ex.querydsl.cache.EntityVersions;
+import ex.querydsl.dto.MemberSearch;
+import ex.querydsl.entity.Member;
+import ex.querydsl.repository.MemberJpaRepository;
+import ex.querydsl.repository.MemberRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//임베디드 H2 두 개(primary, replica)와 복제 대역으로 라우팅 확인
+//커밋이 있어야 하므로 테스트 트랜잭션(@Transactional)을 쓰지 않는다
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1",
+        "datasource.replica.enabled=true",
+        "datasource.replica.url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1",
+        "datasource.replica.read-your-writes-window=1h",
+        "datasource.replica.stand-in.enabled=true",
+        //자동 동기화가 끼어들지 않도록 지연을 길게 두고 테스트에서 직접 sync() 한다
+        "datasource.replica.stand-in.lag=1h",
+        "spring.datasource.hikari.maximum-pool-size=7",
+        "spring.datasource.hikari.connection-timeout=2500"
+})
+class ReplicaRoutingTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    ReplicaRoutingPolicy policy;
+
+    @Autowired
+    H2ReplicationStandIn standIn;
+
+    @Autowired
+    ReplicaDataSources dataSources;
+
+    @Autowired
+    EntityVersions entityVersions;
+
+    @Autowired
+    MutableClock clock;
+
+    //read-your-writes 구간을 시계를 돌려서 끝낸다
+    @TestConfiguration
+    static class ClockConfig {
+
+        @Bean
+        MutableClock clock() {
+            return new MutableClock();
+        }
+
+    }
+
+    @Test
+    void routing() throws Exception {
+
+        MemberSearch search = MemberSearch.builder().username("ReplicaMember").build();
+        transactionTemplate.executeWithoutResult(status ->
+                em.persist(Member.builder().username("ReplicaMember").age(10).build()));
+
+        //쓰기 직후(read-your-writes 구간)에는 읽기 전용 조회도 primary 에서 읽는다
+        assertThat(memberJpaRepository.searchV3(search)).hasSize(1);
+
+        //구간은 쓴 클라이언트(요청 밖에서는 스레드)에만 적용된다 - 다른 클라이언트는 replica 에서 읽는다
+        assertThat(inOtherThread(() -> memberJpaRepository.searchV3(search))).isEmpty();
+
+        //구간이 지나면 replica 에서 읽는다 - 아직 복제되지 않았다
+        clock.advance(Duration.ofHours(2));
+        assertThat(memberJpaRepository.searchV3(search)).isEmpty();
+
+        standIn.sync();
+        assertThat(memberJpaRepository.searchV3(search)).hasSize(1);
+
+        //쓰기 트랜잭션 안의 조회는 그 트랜잭션에 참여하므로 primary 에서 읽는다
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(Member.builder().username("ReplicaMember").age(20).build());
+            assertThat(memberJpaRepository.searchV3(search)).hasSize(2);
+            status.setRollbackOnly();
+        });
+    }
+
+    //캐시와 합치기를 거치는 검색도 조회는 읽기 전용 트랜잭션에서 실행되어 replica 에서 읽는다
+    @Test
+    void cachedSearchReadsFromReplica() {
+
+        MemberSearch search = MemberSearch.builder().username("CachedSearchMember").build();
+        transactionTemplate.executeWithoutResult(status ->
+                em.persist(Member.builder().username("CachedSearchMember").age(10).build()));
+        clock.advance(Duration.ofHours(2));
+
+        assertThat(memberRepository.search(search)).isEmpty();
+    }
+
+    //커밋 직후 다른 클라이언트가 replica 에서 읽은 예전 결과는 replica 가 따라잡으면 캐시와 ETag 에서 밀려난다
+    @Test
+    void replicaCaughtUpInvalidatesStaleResults() {
+
+        MemberSearch search = MemberSearch.builder().username("CaughtUpMember").build();
+        transactionTemplate.executeWithoutResult(status ->
+                em.persist(Member.builder().username("CaughtUpMember").age(10).build()));
+        clock.advance(Duration.ofHours(2));
+
+        assertThat(memberRepository.search(search)).isEmpty();
+        String staleEtag = entityVersions.memberTeamEtag();
+
+        standIn.sync();
+        assertThat(entityVersions.memberTeamEtag()).isNotEqualTo(staleEtag);
+        assertThat(memberRepository.search(search)).hasSize(1);
+    }
+
+    //두 풀 모두 spring.datasource.hikari.* 설정을 따른다
+    @Test
+    void poolsUseHikariProperties() {
+
+        for (HikariDataSource pool : List.of(dataSources.primary(), dataSources.replica())) {
+            assertThat(pool.getMaximumPoolSize()).isEqualTo(7);
+            assertThat(pool.getConnectionTimeout()).isEqualTo(2500);
+        }
+    }
+
+    static class MutableClock extends Clock {
+
+        private volatile Instant instant = Instant.now();
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+
+    }
+
+    private static <T> T inOtherThread(Supplier<T> task) throws Exception {
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            return executor.submit(task::get).get();
+        }
+    }
+
+}
@@ -0,0 +1,37 @@
+package ex.querydsl.monitor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//테스트용 SQL 수 검증
+//startQueryCount() 이후 실행된 SQL 수를 assertQueryCount(n) 으로 확인한다
+//하이버네이트는 flush 시점에 insert/update 를 실행하므로 준비한 데이터는 em.flush() 한 뒤에 시작해야 한다
+public final class QueryCountAssertions {
+
+    private static final ThreadLocal<QueryCount> CURRENT = new ThreadLocal<>();
+
+    private QueryCountAssertions() {
+    }
+
+    public static void startQueryCount() {
+        stopQueryCount();
+        CURRENT.set(QueryCounter.start());
+    }
+
+    public static QueryCount stopQueryCount() {
+        QueryCount count = CURRENT.get();
+        if(count != null) {
+            QueryCounter.stop(count);
+            CURRENT.remove();
+        }
+        return count;
+    }
+
+    public static void assertQueryCount(long expected) {
+        QueryCount count = stopQueryCount();
+        assertThat(count).as("startQueryCount() 를 먼저 호출해야 합니다").isNotNull();
+        assertThat(count.getStatements())
+                .as("실행된 SQL 수\n%s", String.join("\n", count.getSqls()))
+                .isEqualTo(expected);
+    }
+
+}
@@ -0,0 +1,112 @@
+package ex.querydsl.repository;
+
+import ex.querydsl.dto.MemberCursor;
+import ex.querydsl.dto.MemberSearch;
+import ex.querydsl.monitor.QueryCount;
+import ex.querydsl.monitor.QueryCounter;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//인덱스 어드바이저
+//MemberSearch 조건의 모든 조합으로 검색 메서드를 실행하면서 하이버네이트가 만든 SQL 을 모으고(QueryCounter)
+//H2 EXPLAIN 으로 실행 계획을 확인해서 테이블 전체 스캔(tableScan)이 있으면 실패한다
+//새 검색 조건을 추가할 때 인덱스를 빠뜨리면 여기서 걸린다
+@SpringBootTest
+@Transactional
+class IndexAdvisorTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Test
+    void everySearchShapeUsesIndex() {
+
+        Map<String, String> plans = new LinkedHashMap<>();
+        for (MemberSearch search : searchShapes()) {
+            QueryCount count = QueryCounter.start();
+            try {
+                memberRepository.search(search);
+                memberRepository.searchPageSimple(search, PageRequest.of(1, 10));
+                memberRepository.searchPageComplex(search, PageRequest.of(1, 10));
+                memberRepository.searchSlice(search, MemberCursor.first(MemberCursor.SortKey.ID), 10);
+                memberJpaRepository.searchV1(search);
+                memberJpaRepository.searchV2(search);
+                memberJpaRepository.searchV3(search);
+            } finally {
+                QueryCounter.stop(count);
+            }
+            count.getSqls().stream()
+                    .filter(IndexAdvisorTest::isMemberSelect)
+                    .forEach(sql -> plans.computeIfAbsent(sql, this::explain));
+        }
+
+        assertThat(plans).isNotEmpty();
+        List<String> tableScans = plans.entrySet().stream()
+                .filter(plan -> plan.getValue().contains(".tableScan"))
+                .map(plan -> plan.getKey() + "\n" + plan.getValue())
+                .toList();
+        assertThat(tableScans).as("인덱스를 타지 않는 쿼리").isEmpty();
+    }
+
+    //단일 값 조건이 하나 이상 있는 모든 조합 + 여러 값 조건 - 조건이 없는 전체 조회는 스캔이 맞으므로 제외한다
+    private static List<MemberSearch> searchShapes() {
+        List<MemberSearch> searches = new ArrayList<>();
+        for (int mask = 1; mask < 1 << 5; mask++) {
+            searches.add(MemberSearch.builder()
+                    .username((mask & 1) != 0 ? "MemberA" : null)
+                    .usernamePrefix((mask & 1 << 1) != 0 ? "mem" : null)
+                    .usernameIgnoreCase((mask & 1 << 2) != 0 ? "membera" : null)
+                    .teamName((mask & 1 << 3) != 0 ? "TeamA" : null)
+                    .ageGoe((mask & 1 << 4) != 0 ? 10 : null)
+                    .ageLoe((mask & 1 << 4) != 0 ? 40 : null)
+                    .build());
+        }
+        //여러 값 조건(IN) - 단독, 다른 조건과 함께, chunk 가 여러 개인 긴 목록
+        List<Long> manyIds = LongStream.rangeClosed(1, 1000).boxed().toList();
+        searches.add(MemberSearch.builder().usernames(List.of("MemberA", "MemberB")).build());
+        searches.add(MemberSearch.builder().teamNames(List.of("TeamA", "TeamB")).build());
+        searches.add(MemberSearch.builder().memberIds(List.of(1L, 2L, 3L)).build());
+        searches.add(MemberSearch.builder().memberIds(manyIds).build());
+        searches.add(MemberSearch.builder().teamNames(List.of("TeamA", "TeamB")).ageGoe(10).ageLoe(40).build());
+        searches.add(MemberSearch.builder().usernames(List.of("MemberA")).teamNames(List.of("TeamA")).memberIds(manyIds).build());
+        return searches;
+    }
+
+    //H2 는 파라미터(?)를 바인딩하지 않아도 EXPLAIN 을 실행할 수 있다
+    private String explain(String sql) {
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("EXPLAIN " + sql)) {
+                rs.next();
+                return rs.getString(1);
+            }
+        });
+    }
+
+    private static boolean isMemberSelect(String sql) {
+        return sql.trim().toLowerCase(Locale.ROOT).startsWith("select") && sql.contains("member");
+    }
+
+}
@@ -0,0 +1,119 @@
+package ex.querydsl.repository;
+
+import ex.querydsl.dto.MemberSearch;
+import ex.querydsl.dto.MemberTeamDto;
+import ex.querydsl.entity.Member;
+import ex.querydsl.entity.Team;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//인덱스는 커밋된 변경만 반영하므로 테스트 트랜잭션(@Transactional)을 쓰지 않고 전용 메모리 DB 를 사용한다
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:member-age-index;DB_CLOSE_DELAY=-1")
+class MemberAgeIndexTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberAgeIndex memberAgeIndex;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    List<Member> dupMembers;
+
+    //이름이 같은 팀 두 개에 나이가 겹치는 회원을 번갈아 등록한다 - 팀별 목록을 병합해야 (나이, id) 순서가 된다
+    @BeforeEach
+    void before() {
+        dupMembers = transactionTemplate.execute(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+            Team dup1 = new Team("Dup");
+            Team dup2 = new Team("Dup");
+            Team other = new Team("Other");
+            em.persist(dup1);
+            em.persist(dup2);
+            em.persist(other);
+            List<Member> members = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                Member member = Member.builder().username("Member" + i).age(20 + i % 3).team(i % 2 == 0 ? dup1 : dup2).build();
+                em.persist(member);
+                members.add(member);
+                em.persist(Member.builder().username("OtherMember" + i).age(20 + i % 3).team(other).build());
+            }
+            return members;
+        });
+        memberAgeIndex.rebuild();
+    }
+
+    @Test
+    void idsInAgeThenIdOrder() {
+
+        List<Long> expected = dupMembers.stream()
+                .sorted(Comparator.comparing(Member::getAge).thenComparing(Member::getId))
+                .map(Member::getId)
+                .toList();
+
+        assertThat(memberAgeIndex.count("Dup", null, null)).isEqualTo(12);
+        List<Long> paged = new ArrayList<>();
+        for (int offset = 0; offset < 12; offset += 5) {
+            for (long id : memberAgeIndex.memberIds("Dup", null, null, offset, 5)) {
+                paged.add(id);
+            }
+        }
+        assertThat(paged).containsExactlyElementsOf(expected);
+
+        //나이 하나 안에서 중간부터
+        assertThat(memberAgeIndex.memberIds("Dup", 21, 21, 1, 2))
+                .containsExactly(expected.get(5), expected.get(6));
+    }
+
+    //인덱스로 찾은 페이지와 DB 로 조회한 페이지(쓰기 트랜잭션 안에서는 인덱스를 쓰지 않는다)의 순서가 같다
+    @Test
+    void indexPageMatchesDatabasePage() {
+
+        MemberSearch search = MemberSearch.builder().teamName("Dup").ageGoe(20).ageLoe(21).build();
+        for (int page = 0; page < 3; page++) {
+            PageRequest pageRequest = PageRequest.of(page, 3);
+            List<Long> indexed = memberIds(memberRepository.searchPageSimple(search, pageRequest).getContent());
+            List<Long> database = transactionTemplate.execute(status ->
+                    memberIds(memberRepository.searchPageSimple(search, pageRequest).getContent()));
+            assertThat(indexed).containsExactlyElementsOf(database);
+        }
+    }
+
+    //DB 를 읽은 뒤 교체하기 전에 커밋된 변경도 새 인덱스에 남는다
+    @Test
+    void changesCommittedDuringRebuildAreKept() {
+
+        Long removedId = dupMembers.get(0).getId();
+        memberAgeIndex.rebuild(() -> transactionTemplate.executeWithoutResult(status -> {
+            Team other = em.createQuery("select t from Team t where t.name = 'Other'", Team.class).getSingleResult();
+            em.persist(Member.builder().username("Late").age(99).team(other).build());
+            em.remove(em.find(Member.class, removedId));
+        }));
+
+        assertThat(memberAgeIndex.count("Other", 99, 99)).isEqualTo(1);
+        assertThat(memberAgeIndex.count("Dup", null, null)).isEqualTo(11);
+        assertThat(memberAgeIndex.memberIds("Dup", null, null, 0, 12)).doesNotContain(removedId);
+    }
+
+    private static List<Long> memberIds(List<MemberTeamDto> content) {
+        return content.stream().map(MemberTeamDto::getMemberId).toList();
+    }
+
+}
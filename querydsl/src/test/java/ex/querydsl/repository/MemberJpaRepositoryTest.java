@@ -14,6 +14,7 @@ import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 @SpringBootTest
 @Transactional
@@ -87,6 +88,63 @@ class MemberJpaRepositoryTest {
         assertThat(searchV2Result)
                 .extracting("username")
                 .containsExactly("MemberC");
+
+        List<MemberTeamDto> searchV3Result = memberJpaRepository.searchV3(search);
+        assertThat(searchV3Result).isEqualTo(searchV2Result);
+    }
+
+    //여러 값 조건은 searchV1 ~ V3 모두 같은 결과
+    @Test
+    void listConditions() {
+
+        Team teamA = new Team("TeamA");
+        Team teamB = new Team("TeamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        Member memberA = Member.builder().username("MemberA").age(20).team(teamA).build();
+        Member memberB = Member.builder().username("MemberB").age(30).team(teamA).build();
+        Member memberC = Member.builder().username("MemberC").age(40).team(teamB).build();
+        em.persist(memberA);
+        em.persist(memberB);
+        em.persist(memberC);
+
+        List<MemberSearch> searches = List.of(
+                MemberSearch.builder().usernames(List.of("MemberA", "MemberC")).build(),
+                MemberSearch.builder().teamNames(List.of("TeamB")).build(),
+                MemberSearch.builder().memberIds(List.of(memberA.getId(), memberB.getId())).teamNames(List.of("TeamA", "TeamB")).build());
+        List<List<String>> expected = List.of(
+                List.of("MemberA", "MemberC"),
+                List.of("MemberC"),
+                List.of("MemberA", "MemberB"));
+
+        for (int i = 0; i < searches.size(); i++) {
+            MemberSearch search = searches.get(i);
+            assertThat(memberJpaRepository.searchV1(search)).extracting("username").containsExactlyInAnyOrderElementsOf(expected.get(i));
+            assertThat(memberJpaRepository.searchV2(search)).extracting("username").containsExactlyInAnyOrderElementsOf(expected.get(i));
+            assertThat(memberJpaRepository.searchV3(search)).extracting("username").containsExactlyInAnyOrderElementsOf(expected.get(i));
+        }
+    }
+
+    //fields 로 고른 필드만 채워진다
+    @Test
+    void searchV3Fields() {
+
+        Team teamA = new Team("TeamA");
+        em.persist(teamA);
+        em.persist(Member.builder().username("MemberA").age(20).team(teamA).build());
+        em.persist(Member.builder().username("MemberB").age(30).team(teamA).build());
+
+        List<MemberTeamDto> result = memberJpaRepository.searchV3(MemberSearch.builder()
+                .teamName("TeamA")
+                .fields(List.of("username", "teamName"))
+                .build());
+
+        assertThat(result)
+                .extracting("username", "teamName", "memberId", "age", "teamId")
+                .containsExactlyInAnyOrder(
+                        tuple("MemberA", "TeamA", null, null, null),
+                        tuple("MemberB", "TeamA", null, null, null));
     }
 
 }
\ No newline at end of file
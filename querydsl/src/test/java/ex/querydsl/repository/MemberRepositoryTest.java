@@ -1,9 +1,19 @@
 package ex.querydsl.repository;
 
+import com.querydsl.core.types.Projections;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import ex.querydsl.dto.BulkLoadResult;
+import ex.querydsl.dto.CountMode;
+import ex.querydsl.dto.CountedPage;
+import ex.querydsl.dto.MemberCursor;
 import ex.querydsl.dto.MemberSearch;
+import ex.querydsl.dto.MemberSlice;
+import ex.querydsl.dto.MemberSpec;
 import ex.querydsl.dto.MemberTeamDto;
+import ex.querydsl.dto.QMemberTeamDto;
 import ex.querydsl.entity.Member;
 import ex.querydsl.entity.QMember;
+import ex.querydsl.entity.QTeam;
 import ex.querydsl.entity.Team;
 import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,11 +22,21 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 
+import static ex.querydsl.monitor.QueryCountAssertions.assertQueryCount;
+import static ex.querydsl.monitor.QueryCountAssertions.startQueryCount;
+import static ex.querydsl.monitor.QueryCountAssertions.stopQueryCount;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 
 @SpringBootTest
 @Transactional
@@ -28,6 +48,15 @@ public class MemberRepositoryTest {
     @Autowired
     MemberRepository memberRepository;
 
+    @Autowired
+    MemberBulkLoader memberBulkLoader;
+
+    @Autowired
+    TeamQueryRepository teamQueryRepository;
+
+    @Autowired
+    MemberCountEstimator memberCountEstimator;
+
     @Test
     void repositoryTest() {
 
@@ -81,6 +110,45 @@ public class MemberRepositoryTest {
                 .containsExactly("MemberC");
     }
 
+    @Test
+    void usernamePrefixAndIgnoreCase() {
+
+        MemberSearch prefixSearch = MemberSearch.builder().usernamePrefix("mEmBeR").build();
+        assertThat(memberRepository.search(prefixSearch)).hasSize(4);
+
+        MemberSearch ignoreCaseSearch = MemberSearch.builder().usernameIgnoreCase(" memberc ").build();
+        assertThat(memberRepository.search(ignoreCaseSearch))
+                .extracting("username")
+                .containsExactly("MemberC");
+    }
+
+    @Test
+    void fieldsProjection() {
+
+        em.flush();
+        em.clear();
+
+        //이름, 나이만 - team 조인 없이 content, count 모두 member 만 읽는다
+        startQueryCount();
+        Page<MemberTeamDto> page = memberRepository.searchPageSimple(
+                MemberSearch.builder().fields(List.of("username", "age")).build(), PageRequest.of(0, 3));
+        List<String> sqls = stopQueryCount().getSqls();
+        assertThat(sqls).hasSize(2).noneMatch(sql -> sql.contains(" join "));
+        assertThat(page.getContent()).extracting("username", "age", "memberId", "teamName")
+                .containsExactly(
+                        tuple("MemberA", 20, null, null),
+                        tuple("MemberB", 30, null, null),
+                        tuple("MemberC", 40, null, null));
+
+        //팀 조건이 있으면 팀 필드를 고르지 않아도 inner join
+        startQueryCount();
+        List<MemberTeamDto> byTeam = memberRepository.search(
+                MemberSearch.builder().teamName("TeamB").fields(List.of("username")).build());
+        assertThat(stopQueryCount().getSqls()).singleElement().asString().contains(" join ");
+        assertThat(byTeam).extracting("username").containsExactly("MemberC", "MemberD");
+        assertThat(byTeam).extracting("age").containsOnlyNulls();
+    }
+
     @Test
     void simplePaging() {
 
@@ -105,6 +173,373 @@ public class MemberRepositoryTest {
                 .containsExactly("MemberA", "MemberB", "MemberC");
     }
 
+    @Test
+    void queryCount() {
+
+        em.flush();
+        em.clear();
+
+        startQueryCount();
+        memberRepository.search(MemberSearch.builder().teamName("TeamA").build());
+        assertQueryCount(1);
+
+        //첫 페이지의 결과가 페이지 크기보다 작으면 count 쿼리를 생략한다
+        startQueryCount();
+        memberRepository.searchPageComplex(new MemberSearch(), PageRequest.of(0, 10));
+        assertQueryCount(1);
+
+        startQueryCount();
+        memberRepository.searchPageSimple(new MemberSearch(), PageRequest.of(0, 10));
+        assertQueryCount(2);
+    }
+
+    @Test
+    void listConditions() {
+
+        em.flush();
+        em.clear();
+
+        MemberSearch byTeams = MemberSearch.builder().teamNames(List.of("TeamB", "TeamA", "TeamB")).ageGoe(30).ageLoe(40).build();
+        assertThat(memberRepository.search(byTeams)).extracting("username")
+                .containsExactlyInAnyOrder("MemberB", "MemberC");
+
+        //IN 목록은 2의 거듭제곱 길이로 채워지므로 3개, 4개 목록은 같은 SQL 이 된다
+        startQueryCount();
+        List<MemberTeamDto> three = memberRepository.search(MemberSearch.builder().usernames(List.of("MemberA", "MemberB", "MemberC")).build());
+        List<String> threeSql = stopQueryCount().getSqls();
+        startQueryCount();
+        List<MemberTeamDto> four = memberRepository.search(MemberSearch.builder().usernames(List.of("MemberA", "MemberB", "MemberC", "MemberX")).build());
+        List<String> fourSql = stopQueryCount().getSqls();
+        assertThat(three).hasSize(3);
+        assertThat(four).hasSize(3);
+        assertThat(threeSql).isEqualTo(fourSql);
+
+        //긴 목록은 chunk 로 나눠 OR 로 묶는다 - 쿼리는 한 번
+        List<Long> memberIds = new ArrayList<>(LongStream.rangeClosed(-1500, -1).boxed().toList());
+        memberIds.add(memberRepository.findByUsername("MemberD").get(0).getId());
+        startQueryCount();
+        assertThat(memberRepository.search(MemberSearch.builder().memberIds(memberIds).build()))
+                .extracting("username")
+                .containsExactly("MemberD");
+        assertQueryCount(1);
+    }
+
+    @Test
+    void searchBatch() {
+
+        em.flush();
+        em.clear();
+
+        //팀 이름만 있는 조건들 - team.name in (...) 한 번으로 조회
+        startQueryCount();
+        List<List<MemberTeamDto>> byTeam = memberRepository.searchBatch(List.of(
+                MemberSearch.builder().teamName("TeamB").build(),
+                MemberSearch.builder().teamName("TeamA").build(),
+                MemberSearch.builder().teamName("TeamC").build()
+        ));
+        assertQueryCount(1);
+        assertThat(byTeam.get(0)).extracting("username").containsExactly("MemberC", "MemberD");
+        assertThat(byTeam.get(1)).extracting("username").containsExactly("MemberA", "MemberB");
+        assertThat(byTeam.get(2)).isEmpty();
+
+        //서로 다른 조건들 - 한 행이 여러 조건에 해당할 수 있다
+        startQueryCount();
+        List<List<MemberTeamDto>> mixed = memberRepository.searchBatch(List.of(
+                MemberSearch.builder().ageGoe(20).ageLoe(30).build(),
+                MemberSearch.builder().ageGoe(30).ageLoe(40).teamName("TeamA").build(),
+                MemberSearch.builder().usernameIgnoreCase("memberd").build()
+        ));
+        assertQueryCount(1);
+        assertThat(mixed.get(0)).extracting("username").containsExactly("MemberA", "MemberB");
+        assertThat(mixed.get(1)).extracting("username").containsExactly("MemberB");
+        assertThat(mixed.get(2)).extracting("username").containsExactly("MemberD");
+    }
+
+    @Test
+    void countModes() {
+
+        memberBulkLoader.load(
+                IntStream.range(0, 2500).mapToObj(i -> new MemberSpec("Bulk" + i, i % 60, i % 2 == 0 ? "TeamA" : "TeamC"))
+        );
+        em.flush();
+        em.clear();
+        memberCountEstimator.refresh();
+
+        MemberSearch search = MemberSearch.builder().teamName("TeamC").build();
+        PageRequest pageRequest = PageRequest.of(0, 10);
+
+        CountedPage<MemberTeamDto> exact = (CountedPage<MemberTeamDto>) memberRepository.searchPageSimple(search, pageRequest, CountMode.EXACT);
+        assertThat(exact.getCountMode()).isEqualTo(CountMode.EXACT);
+        assertThat(exact.getTotalElements()).isEqualTo(1250);
+
+        //팀 히스토그램으로 추정 - count 쿼리 없이 content 쿼리 한 번
+        startQueryCount();
+        CountedPage<MemberTeamDto> estimated = (CountedPage<MemberTeamDto>) memberRepository.searchPageSimple(search, pageRequest, CountMode.ESTIMATED);
+        assertQueryCount(1);
+        assertThat(estimated.getCountMode()).isEqualTo(CountMode.ESTIMATED);
+        assertThat(estimated.getTotalElements()).isEqualTo(1250);
+
+        CountedPage<MemberTeamDto> capped = (CountedPage<MemberTeamDto>) memberRepository.searchPageComplex(search, pageRequest, CountMode.CAPPED);
+        assertThat(capped.getCountMode()).isEqualTo(CountMode.CAPPED);
+        assertThat(capped.isTotalCapped()).isTrue();
+        assertThat(capped.getTotalElements()).isEqualTo(1000);
+        assertThat(capped.hasNext()).isTrue();
+
+        //상한보다 적으면 실제 개수
+        MemberSearch narrow = MemberSearch.builder().teamName("TeamC").ageGoe(10).ageLoe(11).build();
+        CountedPage<MemberTeamDto> notCapped = (CountedPage<MemberTeamDto>) memberRepository.searchPageComplex(narrow, pageRequest, CountMode.CAPPED);
+        assertThat(notCapped.isTotalCapped()).isFalse();
+        assertThat(notCapped.getTotalElements()).isEqualTo(42);
+
+        //content 만으로 total 을 알 수 있으면 EXACT
+        CountedPage<MemberTeamDto> small = (CountedPage<MemberTeamDto>) memberRepository.searchPageSimple(
+                MemberSearch.builder().teamName("TeamB").build(), pageRequest, CountMode.ESTIMATED);
+        assertThat(small.getCountMode()).isEqualTo(CountMode.EXACT);
+        assertThat(small.getTotalElements()).isEqualTo(2);
+    }
+
+    //나이 조건은 한쪽만 있어도 적용하고 추정도 히스토그램의 그 방향 끝까지 센다 - 나이만 조건이면 정확한 개수와 같다
+    @Test
+    void estimateOneSidedAgeRange() {
+
+        memberBulkLoader.load(
+                IntStream.range(0, 600).mapToObj(i -> new MemberSpec("Bulk" + i, i % 60, "TeamC"))
+        );
+        em.flush();
+        em.clear();
+        memberCountEstimator.refresh();
+
+        MemberSearch goe = MemberSearch.builder().ageGoe(50).build();
+        MemberSearch loe = MemberSearch.builder().ageLoe(9).build();
+
+        assertThat(exactTotal(goe)).isEqualTo(101);
+        assertThat(exactTotal(loe)).isEqualTo(100);
+        assertThat(memberRepository.search(goe)).hasSize(101);
+        assertThat(memberCountEstimator.estimate(goe)).hasValue(exactTotal(goe));
+        assertThat(memberCountEstimator.estimate(loe)).hasValue(exactTotal(loe));
+        assertThat(memberCountEstimator.estimate(MemberSearch.builder().ageGoe(30).ageLoe(20).build())).hasValue(0);
+    }
+
+    //통계를 모으기 전에는 요청 중에 집계하지 않고 CAPPED 로 센다
+    @Test
+    void estimateBeforeStatistics() {
+
+        MemberCountEstimator cold = new MemberCountEstimator(new JPAQueryFactory(em));
+        MemberSearch search = MemberSearch.builder().build();
+
+        startQueryCount();
+        assertThat(cold.estimate(search)).isEmpty();
+        assertQueryCount(0);
+    }
+
+    private long exactTotal(MemberSearch search) {
+        return memberRepository.searchPageSimple(search, PageRequest.of(0, 1), CountMode.EXACT).getTotalElements();
+    }
+
+    @Test
+    void keysetPaging() {
+
+        MemberSearch search = new MemberSearch();
+
+        MemberSlice first = memberRepository.searchSlice(search, MemberCursor.first(MemberCursor.SortKey.AGE), 3);
+        assertThat(first.getContent()).extracting("username")
+                .containsExactly("MemberA", "MemberB", "MemberC");
+        assertThat(first.isHasNext()).isTrue();
+
+        MemberSlice second = memberRepository.searchSlice(search, MemberCursor.decode(first.getNextCursor()), 3);
+        assertThat(second.getContent()).extracting("username")
+                .containsExactly("MemberD");
+        assertThat(second.isHasNext()).isFalse();
+        assertThat(second.getNextCursor()).isNull();
+
+        assertThatThrownBy(() -> memberRepository.searchSlice(search, MemberCursor.first(MemberCursor.SortKey.ID), 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void bulkLoad() {
+
+        BulkLoadResult result = memberBulkLoader.load(
+                IntStream.range(0, 2500).mapToObj(i -> new MemberSpec("Bulk" + i, i % 60, i % 2 == 0 ? "TeamA" : "TeamC"))
+        );
+        assertThat(result.getRows()).isEqualTo(2500);
+
+        MemberSearch search = MemberSearch.builder().teamName("TeamC").build();
+        assertThat(memberRepository.search(search)).hasSize(1250);
+
+        //이미 있던 TeamA 에 등록하고 새 팀을 만들지 않는다
+        assertThat(em.createQuery("select count(t) from Team t where t.name = 'TeamA'", Long.class).getSingleResult()).isEqualTo(1);
+        assertThat(memberRepository.search(MemberSearch.builder().teamName("TeamA").build())).hasSize(1252);
+    }
+
+    @Test
+    void idsFirstPaging() {
+
+        memberBulkLoader.load(
+                IntStream.range(0, 2500).mapToObj(i -> new MemberSpec("Bulk" + i, i % 60, i % 2 == 0 ? "TeamA" : "TeamC"))
+        );
+        em.flush();
+        em.clear();
+
+        //offset 1000 이상 - id 조회, 행 조회, count 쿼리
+        MemberSearch search = MemberSearch.builder().teamName("TeamC").build();
+        startQueryCount();
+        Page<MemberTeamDto> deep = memberRepository.searchPageComplex(search, PageRequest.of(20, 50));
+        assertQueryCount(3);
+        assertThat(deep.getContent()).hasSize(50);
+        assertThat(deep.getContent()).extracting("teamName").containsOnly("TeamC");
+        assertThat(deep.getTotalElements()).isEqualTo(1250);
+
+        //페이지가 겹치지 않고 이어진다
+        Page<MemberTeamDto> next = memberRepository.searchPageComplex(search, PageRequest.of(21, 50));
+        assertThat(next.getContent()).extracting("memberId")
+                .doesNotContainAnyElementsOf(deep.getContent().stream().map(MemberTeamDto::getMemberId).toList());
+    }
+
+    //fields 에 memberId 가 없어도 2단계 조회 결과를 1단계 순서대로 맞춘다
+    @Test
+    void idsFirstPagingWithFields() {
+
+        memberBulkLoader.load(
+                IntStream.range(0, 2500).mapToObj(i -> new MemberSpec("Bulk" + i, i % 60, i % 2 == 0 ? "TeamA" : "TeamC"))
+        );
+        em.flush();
+        em.clear();
+
+        PageRequest deepPage = PageRequest.of(30, 40);
+        List<String> expected = memberRepository.searchPageSimple(MemberSearch.builder().teamName("TeamC").build(), deepPage)
+                .getContent().stream().map(MemberTeamDto::getUsername).toList();
+
+        Page<MemberTeamDto> usernames = memberRepository.searchPageSimple(
+                MemberSearch.builder().teamName("TeamC").fields(List.of("username")).build(), deepPage);
+        assertThat(usernames.getContent()).extracting("username").containsExactlyElementsOf(expected);
+        assertThat(usernames.getContent()).extracting("age").containsOnlyNulls();
+    }
+
+    //Pageable 정렬은 얕은 페이지, 2단계 조회 모두 적용된다 - 같은 값은 id 순서
+    @Test
+    void pageSort() {
+
+        Page<MemberTeamDto> byAgeDesc = memberRepository.searchPageSimple(MemberSearch.builder().build(),
+                PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "age")));
+        assertThat(byAgeDesc.getContent()).extracting("username").containsExactly("MemberD", "MemberC", "MemberB");
+
+        //팀 필드로 정렬하면 팀 필드를 조회하지 않아도 team 을 조인한다
+        Page<MemberTeamDto> byTeam = memberRepository.searchPageComplex(MemberSearch.builder().fields(List.of("username")).build(),
+                PageRequest.of(0, 4, Sort.by(Sort.Order.desc("teamName"), Sort.Order.asc("username"))));
+        assertThat(byTeam.getContent()).extracting("username").containsExactly("MemberC", "MemberD", "MemberA", "MemberB");
+
+        memberBulkLoader.load(
+                IntStream.range(0, 2500).mapToObj(i -> new MemberSpec("Bulk" + i, i % 60, i % 2 == 0 ? "TeamA" : "TeamC"))
+        );
+        em.flush();
+        em.clear();
+
+        List<MemberTeamDto> deep = memberRepository.searchPageSimple(MemberSearch.builder().teamName("TeamC").build(),
+                PageRequest.of(20, 50, Sort.by(Sort.Direction.DESC, "age"))).getContent();
+        assertThat(deep).hasSize(50);
+        assertThat(deep).isSortedAccordingTo(Comparator.comparing(MemberTeamDto::getAge).reversed()
+                .thenComparing(MemberTeamDto::getMemberId));
+
+        assertThatThrownBy(() -> memberRepository.searchPageSimple(MemberSearch.builder().build(),
+                PageRequest.of(0, 3, Sort.by("password"))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void teamsWithMembersPaging() {
+
+        em.persist(new Team("TeamC"));
+        em.flush();
+        em.clear();
+
+        //팀 id 페이징 + 해당 팀만 fetch join - 회원 수와 상관없이 팀 단위로 잘린다
+        startQueryCount();
+        Page<Team> first = teamQueryRepository.findTeamsWithMembers(PageRequest.of(0, 2));
+        assertQueryCount(3);
+        assertThat(first.getTotalElements()).isEqualTo(3);
+        assertThat(first.getContent()).extracting("name").containsExactly("TeamA", "TeamB");
+        assertThat(first.getContent().get(0).getMembers()).extracting("username")
+                .containsExactlyInAnyOrder("MemberA", "MemberB");
+
+        Page<Team> second = teamQueryRepository.findTeamsWithMembers(PageRequest.of(1, 2));
+        assertThat(second.getContent()).extracting("name").containsExactly("TeamC");
+        assertThat(second.getContent().get(0).getMembers()).isEmpty();
+    }
+
+    @Test
+    void bulkOperations() {
+
+        Member memberC = memberRepository.findByUsername("MemberC").get(0);
+        Team teamA = memberRepository.findByUsername("MemberA").get(0).getTeam();
+
+        long added = memberRepository.bulkAddAge(MemberSearch.builder().teamName("TeamB").build(), 1);
+        assertThat(added).isEqualTo(2);
+
+        //벌크 연산 후 Member 는 분리되었으므로 다시 조회하면 변경된 값이 보인다
+        assertThat(em.contains(memberC)).isFalse();
+        assertThat(memberRepository.findById(memberC.getId()).get().getAge()).isEqualTo(41);
+        //테스트 트랜잭션에 참여했으므로 다른 엔티티는 영속 상태로 남는다 - 변경 감지도 그대로
+        assertThat(em.contains(teamA)).isTrue();
+
+        long moved = memberRepository.bulkChangeTeam(MemberSearch.builder().teamName("TeamB").build(), teamA.getId());
+        assertThat(moved).isEqualTo(2);
+        assertThat(memberRepository.search(MemberSearch.builder().teamName("TeamA").build())).hasSize(4);
+
+        long deleted = memberRepository.bulkDelete(MemberSearch.builder().ageGoe(40).ageLoe(60).build());
+        assertThat(deleted).isEqualTo(2);
+        assertThat(memberRepository.findAll()).extracting("username")
+                .containsExactlyInAnyOrder("MemberA", "MemberB");
+    }
+
+    @Test
+    void querydslPredicateExecutorWithProjection() {
+
+        QMember member = QMember.member;
+        PageRequest pageRequest = PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "age"));
+
+        Page<MemberTeamDto> result = memberRepository.findAll(
+                member.age.between(20, 40),
+                pageRequest,
+                new QMemberTeamDto(member.id, member.username, member.age, QTeam.team.id, QTeam.team.name)
+        );
+
+        assertThat(result.getTotalElements()).isEqualTo(3);
+        assertThat(result.getContent()).extracting("username")
+                .containsExactly("MemberC", "MemberB", "MemberA");
+        assertThat(result.getContent()).extracting("teamName")
+                .containsExactly("TeamB", "TeamA", "TeamA");
+    }
+
+    //프로젝션과 조건이 team 을 참조하지 않으면 조인하지 않는다
+    @Test
+    void querydslPredicateExecutorWithoutTeam() {
+
+        QMember member = QMember.member;
+        em.flush();
+        em.clear();
+
+        startQueryCount();
+        Page<MemberTeamDto> result = memberRepository.findAll(
+                member.age.goe(30),
+                PageRequest.of(0, 2, Sort.by("age")),
+                Projections.fields(MemberTeamDto.class, member.id.as("memberId"), member.username)
+        );
+        List<String> sqls = stopQueryCount().getSqls();
+
+        assertThat(sqls).hasSize(2).noneMatch(sql -> sql.contains(" join "));
+        assertThat(result.getTotalElements()).isEqualTo(3);
+        assertThat(result.getContent()).extracting("username").containsExactly("MemberB", "MemberC");
+
+        //조건이 team 별칭을 참조하면 count 쿼리도 조인한다
+        Page<MemberTeamDto> byTeam = memberRepository.findAll(
+                QTeam.team.name.eq("TeamB"),
+                PageRequest.of(0, 1),
+                Projections.fields(MemberTeamDto.class, member.username)
+        );
+        assertThat(byTeam.getTotalElements()).isEqualTo(2);
+    }
+
     @Test
     void querydslPredicateExecutor() {
 
@@ -0,0 +1,139 @@
+package ex.querydsl.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import ex.querydsl.entity.Member;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+//병렬 실행 경로와 쓰기 트랜잭션 안의 순차 실행 경로
+//커밋/롤백을 직접 다뤄야 하므로 테스트 트랜잭션(@Transactional)을 쓰지 않는다
+@SpringBootTest(properties = "member.search.parallel-count=true")
+class PageQueryExecutorTest {
+
+    @Autowired
+    PageQueryExecutor pageQueryExecutor;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    EntityManager em;
+
+    @Test
+    void parallelRunsEachQueryInItsOwnReadOnlyTransaction() {
+
+        Queue<String> runs = new ConcurrentLinkedQueue<>();
+        Thread caller = Thread.currentThread();
+
+        Page<String> page = pageQueryExecutor.getPage(() -> {
+            runs.add(describe("content", caller));
+            return List.of("a", "b");
+        }, PageRequest.of(0, 2), () -> {
+            runs.add(describe("count", caller));
+            return 5L;
+        });
+
+        assertThat(pageQueryExecutor.isParallel()).isTrue();
+        assertThat(page.getContent()).containsExactly("a", "b");
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(runs).containsExactlyInAnyOrder("content:other-thread:read-only", "count:other-thread:read-only");
+    }
+
+    //바깥 읽기 전용 트랜잭션은 SQL 을 실행하지 않으므로 지연 프록시 덕분에 커넥션을 잡지 않는다
+    @Test
+    void outerReadOnlyTransactionHoldsNoConnection() {
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        Long count = readOnly.execute(status -> {
+            assertThat(activeConnections()).isZero();
+            return pageQueryExecutor.getPage(
+                    () -> em.createQuery("select m from Member m", Member.class).setMaxResults(1).getResultList(),
+                    PageRequest.of(0, 1),
+                    () -> em.createQuery("select count(m) from Member m", Long.class).getSingleResult()
+            ).getTotalElements();
+        });
+
+        assertThat(count).isNotNull();
+        assertThat(activeConnections()).isZero();
+    }
+
+    //쓰기 트랜잭션 안에서는 커밋되지 않은 변경이 보이도록 호출 스레드에서 순차 실행한다
+    @Test
+    void sequentialInsideReadWriteTransaction() {
+
+        Queue<String> runs = new ConcurrentLinkedQueue<>();
+        Thread caller = Thread.currentThread();
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+
+        readWrite.executeWithoutResult(status -> {
+            em.persist(Member.builder().username("UncommittedMember").age(10).build());
+
+            Page<Member> page = pageQueryExecutor.getPage(() -> {
+                runs.add(describe("content", caller));
+                return em.createQuery("select m from Member m where m.username = :username", Member.class)
+                        .setParameter("username", "UncommittedMember")
+                        .getResultList();
+            }, PageRequest.of(0, 10), () -> {
+                runs.add(describe("count", caller));
+                return em.createQuery("select count(m) from Member m where m.username = :username", Long.class)
+                        .setParameter("username", "UncommittedMember")
+                        .getSingleResult();
+            });
+
+            assertThat(page.getContent()).extracting("username").containsExactly("UncommittedMember");
+            assertThat(page.getTotalElements()).isEqualTo(1);
+            status.setRollbackOnly();
+        });
+
+        assertThat(runs).containsExactly("content:caller:read-write", "count:caller:read-write");
+    }
+
+    @Test
+    void parallelRethrowsQueryException() {
+
+        assertThatThrownBy(() -> pageQueryExecutor.getPage(
+                () -> {
+                    throw new IllegalStateException("content failed");
+                },
+                PageRequest.of(0, 10),
+                () -> 0L))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("content failed");
+    }
+
+    private static String describe(String query, Thread caller) {
+        return query
+                + (Thread.currentThread() == caller ? ":caller" : ":other-thread")
+                + (TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? ":read-only" : ":read-write");
+    }
+
+    private int activeConnections() {
+        try {
+            return dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean().getActiveConnections();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
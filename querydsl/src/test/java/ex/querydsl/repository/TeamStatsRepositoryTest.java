@@ -0,0 +1,129 @@
+package ex.querydsl.repository;
+
+import ex.querydsl.dto.MemberSearch;
+import ex.querydsl.entity.Member;
+import ex.querydsl.entity.Team;
+import ex.querydsl.event.BulkChangedEvent;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+//팀별 통계는 커밋 후에 반영되므로 테스트 트랜잭션(@Transactional)을 쓰지 않고 전용 메모리 DB 를 사용한다
+//벌크 연산을 여러 chunk 로 나누도록 chunk 크기를 1 로 둔다
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:team-stats;DB_CLOSE_DELAY=-1",
+        "member.bulk.update-chunk-size=1"
+})
+@RecordApplicationEvents
+class TeamStatsRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    TeamStatsRepository teamStatsRepository;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    ApplicationEvents events;
+
+    @BeforeEach
+    void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+            Team teamA = new Team("TeamA");
+            Team teamB = new Team("TeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(Member.builder().username("MemberA").age(20).team(teamA).build());
+            em.persist(Member.builder().username("MemberB").age(30).team(teamA).build());
+            em.persist(Member.builder().username("MemberC").age(40).team(teamB).build());
+        });
+        teamStatsRepository.reconcile();
+    }
+
+    @Test
+    void committedChanges() {
+
+        assertThat(teamStatsRepository.findAll())
+                .extracting("teamName", "memberCount", "averageAge", "minAge", "maxAge")
+                .containsExactly(
+                        tuple("TeamA", 2L, 25.0, 20, 30),
+                        tuple("TeamB", 1L, 40.0, 40, 40));
+
+        //팀 변경, 등록, 삭제를 한 트랜잭션에서
+        transactionTemplate.executeWithoutResult(status -> {
+            Member memberC = memberRepository.findByUsername("MemberC").get(0);
+            memberRepository.findByUsername("MemberB").get(0).changeTeam(memberC.getTeam());
+            em.persist(Member.builder().username("MemberD").age(50).team(memberC.getTeam()).build());
+            em.remove(memberC);
+        });
+
+        assertThat(teamStatsRepository.findAll())
+                .extracting("teamName", "memberCount", "averageAge", "minAge", "maxAge")
+                .containsExactly(
+                        tuple("TeamA", 1L, 20.0, 20, 20),
+                        tuple("TeamB", 2L, 40.0, 30, 50));
+    }
+
+    @Test
+    void rolledBackChangesAreIgnored() {
+
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(Member.builder().username("MemberD").age(90).team(memberRepository.findByUsername("MemberA").get(0).getTeam()).build());
+            status.setRollbackOnly();
+        });
+
+        assertThat(teamStatsRepository.findAll())
+                .extracting("teamName", "memberCount", "maxAge")
+                .containsExactly(tuple("TeamA", 2L, 30), tuple("TeamB", 1L, 40));
+    }
+
+    //전체를 집계한 뒤 교체하기 전에 커밋된 변경은 그 팀만 다시 세서 반영한다
+    @Test
+    void changesCommittedDuringReconcileAreKept() {
+
+        teamStatsRepository.reconcile(() -> transactionTemplate.executeWithoutResult(status -> {
+            Member memberA = memberRepository.findByUsername("MemberA").get(0);
+            em.persist(Member.builder().username("Late").age(60).team(memberA.getTeam()).build());
+            em.remove(memberRepository.findByUsername("MemberC").get(0));
+        }));
+
+        assertThat(teamStatsRepository.findAll())
+                .extracting("teamName", "memberCount", "minAge", "maxAge")
+                .containsExactly(tuple("TeamA", 3L, 20, 60), tuple("TeamB", 0L, null, null));
+    }
+
+    //chunk 가 여러 개여도 BulkChangedEvent 는 벌크 연산마다 한 번
+    @Test
+    void bulkOperationPublishesOneEvent() {
+
+        long updated = memberRepository.bulkAddAge(MemberSearch.builder().ageGoe(0).ageLoe(100).build(), 1);
+        assertThat(updated).isEqualTo(3);
+
+        assertThat(events.stream(BulkChangedEvent.class))
+                .singleElement()
+                .satisfies(event -> {
+                    assertThat(event.affects(Member.class, "age")).isTrue();
+                    assertThat(event.affects(Member.class, "username")).isFalse();
+                });
+        assertThat(teamStatsRepository.findAll())
+                .extracting("teamName", "averageAge", "minAge", "maxAge")
+                .containsExactly(tuple("TeamA", 26.0, 21, 31), tuple("TeamB", 41.0, 41, 41));
+    }
+
+}
@@ -0,0 +1,82 @@
+package ex.querydsl.repository;
+
+import ex.querydsl.entity.Member;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//자동완성은 커밋된 변경만 반영하므로 테스트 트랜잭션(@Transactional)을 쓰지 않고 전용 메모리 DB 를 사용한다
+//변경을 배열로 합치는 경우도 보도록 compact-threshold 를 작게 둔다
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:username-prefix;DB_CLOSE_DELAY=-1",
+        "member.username-prefix.compact-threshold=2"
+})
+class UsernamePrefixTrieTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    UsernamePrefixTrie usernamePrefixTrie;
+
+    @BeforeEach
+    void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.persist(Member.builder().username("Alice").age(20).build());
+            em.persist(Member.builder().username("alice").age(21).build());
+            em.persist(Member.builder().username("Alicia").age(22).build());
+            em.persist(Member.builder().username("Bob").age(30).build());
+        });
+        usernamePrefixTrie.rebuild();
+    }
+
+    @Test
+    void complete() {
+
+        assertThat(usernamePrefixTrie.complete("AL", 10)).containsExactly("alice", "alicia");
+        assertThat(usernamePrefixTrie.complete("al", 1)).containsExactly("alice");
+        assertThat(usernamePrefixTrie.complete("c", 10)).isEmpty();
+        assertThat(usernamePrefixTrie.complete("", 10)).containsExactly("alice", "alicia", "bob");
+    }
+
+    //같은 이름의 회원이 모두 없어져야 목록에서 빠진다
+    @Test
+    void committedChanges() {
+
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(Member.builder().username("Alina").age(23).build());
+            em.persist(Member.builder().username("Albert").age(24).build());
+            em.persist(Member.builder().username("Bobby").age(25).build());
+        });
+        assertThat(usernamePrefixTrie.complete("al", 10)).containsExactly("albert", "alice", "alicia", "alina");
+
+        transactionTemplate.executeWithoutResult(status ->
+                em.createQuery("select m from Member m where m.usernameNormalized = 'alice'", Member.class)
+                        .getResultList()
+                        .forEach(em::remove));
+        assertThat(usernamePrefixTrie.complete("al", 10)).containsExactly("albert", "alicia", "alina");
+        assertThat(usernamePrefixTrie.complete("bob", 10)).containsExactly("bob", "bobby");
+    }
+
+    //DB 를 읽은 뒤 교체하기 전에 커밋된 변경도 남는다
+    @Test
+    void changesCommittedDuringRebuildAreKept() {
+
+        usernamePrefixTrie.rebuild(() -> transactionTemplate.executeWithoutResult(status -> {
+            em.persist(Member.builder().username("Carol").age(40).build());
+            em.remove(em.createQuery("select m from Member m where m.username = 'Bob'", Member.class).getSingleResult());
+        }));
+
+        assertThat(usernamePrefixTrie.complete("", 10)).containsExactly("alice", "alicia", "carol");
+    }
+
+}